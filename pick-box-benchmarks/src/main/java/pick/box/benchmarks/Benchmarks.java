@@ -0,0 +1,28 @@
+package pick.box.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <pre>
+ * Main class of benchmarks.jar. Takes the usual JMH options and always adds the
+ * GC profiler, so allocation per op (gc.alloc.rate.norm) is reported next to the
+ * time of each benchmark. eg
+ *
+ *     java -jar target/benchmarks.jar PickBoxBenchmark.resolveRequest -p shape=university
+ * </pre>
+ */
+public class Benchmarks {
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+            .parent(new CommandLineOptions(args))
+            .addProfiler(GCProfiler.class)
+            .build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,70 @@
+package pick.box.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pick.box.PickerUtil;
+import pick.box.types.TypeUtil;
+
+/**
+ * <pre>
+ * The hot paths of PickBox over each Scenario shape: resolving a request,
+ * mapping the response, writing the map as json and building the default object
+ * of the request class (what an OPTIONS endpoint does).
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PickBoxBenchmark {
+
+    @Param({ Scenario.NESTED, Scenario.UNIVERSITY, Scenario.WIDE, Scenario.DEEP, Scenario.LARGE_LIST })
+    public String shape;
+
+    private Scenario scenario;
+    private Class<?> requestType;
+
+
+    @Setup
+    public void setUp() {
+        scenario = Scenario.of(shape);
+        requestType = scenario.getRequest().getClass();
+    }
+
+
+    @Benchmark
+    public Object resolveRequest() {
+        return scenario.resolve();
+    }
+
+    @Benchmark
+    public Map<String, Object> mapify() {
+        return PickerUtil.mapify(scenario.getResponse());
+    }
+
+    @Benchmark
+    public String jsonMap() {
+        return PickerUtil.jsonMap(scenario.getMapped());
+    }
+
+    @Benchmark
+    public Object buildDefault() {
+        return TypeUtil.buildDefaultForNonBasicClass(requestType);
+    }
+
+}
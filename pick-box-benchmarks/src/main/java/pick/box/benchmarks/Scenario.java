@@ -0,0 +1,131 @@
+package pick.box.benchmarks;
+
+import java.util.List;
+import java.util.Map;
+
+import pick.box.PickBox;
+import pick.box.PickerUtil;
+import pick.box.benchmarks.domain.Catalog;
+import pick.box.benchmarks.domain.Level;
+import pick.box.benchmarks.domain.WideTable;
+import pick.box.benchmarks.resolvers.CatalogResolver;
+import pick.box.benchmarks.resolvers.ItemResolver;
+import pick.box.benchmarks.resolvers.LevelResolver;
+import pick.box.benchmarks.resolvers.WideRecordResolver;
+import pick.box.benchmarks.resolvers.WideTableResolver;
+import pick.box.domain.doubleNestedExample.University;
+import pick.box.domain.doubleNestedExample.resolvers.ClassDaysResolver;
+import pick.box.domain.doubleNestedExample.resolvers.ClazzResolver;
+import pick.box.domain.doubleNestedExample.resolvers.ProfessorResolver;
+import pick.box.domain.doubleNestedExample.resolvers.StudentResolver;
+import pick.box.domain.doubleNestedExample.resolvers.UniversityResolver;
+import pick.box.domain.nestedExample.ChildResolver;
+import pick.box.domain.nestedExample.Parent;
+import pick.box.domain.nestedExample.ParentResolver;
+
+/**
+ * <pre>
+ * A request shape to benchmark: a PickBox with its resolvers, a request asking 
+ * for every field, and the response and its map (for the mapify and json 
+ * benchmarks).
+ *
+ *  - nested      the Parent/Child example from the tests
+ *  - university  the University example from the tests (classes, class days, students, professors)
+ *  - wide        a list of 100 objects with 32 fields each
+ *  - deep        16 nested objects, each from its own resolver call
+ *  - largeList   a list of 10,000 small objects
+ * </pre>
+ */
+public final class Scenario {
+
+    public static final String NESTED = "nested";
+    public static final String UNIVERSITY = "university";
+    public static final String WIDE = "wide";
+    public static final String DEEP = "deep";
+    public static final String LARGE_LIST = "largeList";
+
+    private static final int WIDE_RECORDS = 100;
+    private static final int DEPTH = 16;
+    private static final int LARGE_LIST_SIZE = 10_000;
+
+
+    private final PickBox pickBox;
+    private final Object request;
+    private final Object extraData;
+    private final Object response;
+    private final Map<String, Object> mapped;
+
+
+    private Scenario(PickBox pickBox, Object request, Object extraData) {
+        this.pickBox = pickBox;
+        this.request = request;
+        this.extraData = extraData;
+        this.response = resolve();
+        this.mapped = PickerUtil.mapify(response);
+    }
+
+
+    public static Scenario of(String shape) {
+        switch (shape) {
+            case NESTED:
+                return new Scenario(
+                    new PickBox(List.of(new ParentResolver(), new ChildResolver())),
+                    PickBox.getDefaultObject(Parent.class),
+                    1
+                );
+            case UNIVERSITY:
+                return new Scenario(
+                    new PickBox(List.of(new UniversityResolver(), new ClazzResolver(), new ClassDaysResolver(), new StudentResolver(), new ProfessorResolver())),
+                    PickBox.getDefaultObject(University.class),
+                    "univ_1"
+                );
+            case WIDE:
+                return new Scenario(
+                    new PickBox(List.of(new WideTableResolver(), new WideRecordResolver(WIDE_RECORDS))),
+                    PickBox.getDefaultObject(WideTable.class),
+                    null
+                );
+            case DEEP:
+                return new Scenario(
+                    new PickBox(List.of(new LevelResolver())),
+                    deepRequest(DEPTH),
+                    null
+                );
+            case LARGE_LIST:
+                return new Scenario(
+                    new PickBox(List.of(new CatalogResolver(), new ItemResolver(LARGE_LIST_SIZE))),
+                    PickBox.getDefaultObject(Catalog.class),
+                    null
+                );
+            default:
+                throw new IllegalArgumentException("Unknown shape " + shape);
+        }
+    }
+
+    private static Level deepRequest(int depth) {
+        Level request = new Level();
+        request.name = "";
+        request.depth = 0;
+        if (depth > 1)
+            request.next = deepRequest(depth - 1);
+        return request;
+    }
+
+
+    public Object resolve() {
+        return pickBox.resolveRequest(request, extraData);
+    }
+
+    public Object getRequest() {
+        return request;
+    }
+
+    public Object getResponse() {
+        return response;
+    }
+
+    public Map<String, Object> getMapped() {
+        return mapped;
+    }
+
+}
@@ -0,0 +1,11 @@
+package pick.box.benchmarks.domain;
+
+import java.util.List;
+
+public class Catalog {
+
+    public String id;
+    public String name;
+    public List<Item> items;
+
+}
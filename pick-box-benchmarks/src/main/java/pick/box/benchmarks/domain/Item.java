@@ -0,0 +1,12 @@
+package pick.box.benchmarks.domain;
+
+import java.math.BigDecimal;
+
+public class Item {
+
+    public String sku;
+    public String name;
+    public BigDecimal price;
+    public Integer quantity;
+
+}
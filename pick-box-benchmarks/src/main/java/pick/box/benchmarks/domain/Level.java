@@ -0,0 +1,12 @@
+package pick.box.benchmarks.domain;
+
+/**
+ * One level of the 'deep' shape, each level's next is resolved from the one above it
+ */
+public class Level {
+
+    public String name;
+    public Integer depth;
+    public Level next;
+
+}
@@ -0,0 +1,41 @@
+package pick.box.benchmarks.domain;
+
+/**
+ * A row with 32 basic fields, for the 'wide' shape
+ */
+public class WideRecord {
+
+    public String string0;
+    public String string1;
+    public String string2;
+    public String string3;
+    public String string4;
+    public String string5;
+    public String string6;
+    public String string7;
+    public Integer integer0;
+    public Integer integer1;
+    public Integer integer2;
+    public Integer integer3;
+    public Integer integer4;
+    public Integer integer5;
+    public Integer integer6;
+    public Integer integer7;
+    public Long long0;
+    public Long long1;
+    public Long long2;
+    public Long long3;
+    public Long long4;
+    public Long long5;
+    public Long long6;
+    public Long long7;
+    public Double double0;
+    public Double double1;
+    public Double double2;
+    public Double double3;
+    public Double double4;
+    public Double double5;
+    public Double double6;
+    public Double double7;
+
+}
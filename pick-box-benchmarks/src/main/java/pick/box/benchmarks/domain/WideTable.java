@@ -0,0 +1,10 @@
+package pick.box.benchmarks.domain;
+
+import java.util.List;
+
+public class WideTable {
+
+    public String id;
+    public List<WideRecord> records;
+
+}
@@ -0,0 +1,16 @@
+package pick.box.benchmarks.resolvers;
+
+import pick.box.Resolver;
+import pick.box.benchmarks.domain.Catalog;
+
+public class CatalogResolver extends Resolver<Catalog, Void, Void> {
+
+    @Override
+    public Catalog resolve(Void parent, Void extraData) {
+        Catalog catalog = new Catalog();
+        catalog.id = "catalog_1";
+        catalog.name = "Everything";
+        return catalog;
+    }
+
+}
@@ -0,0 +1,36 @@
+package pick.box.benchmarks.resolvers;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import pick.box.Resolver;
+import pick.box.benchmarks.domain.Catalog;
+import pick.box.benchmarks.domain.Item;
+
+/**
+ * Returns the same items every time, so only PickBox's work is measured
+ */
+public class ItemResolver extends Resolver<List<Item>, Catalog, Void> {
+
+    private final List<Item> items = new ArrayList<>();
+
+
+    public ItemResolver(int count) {
+        for (int i = 0; i < count; i++) {
+            Item item = new Item();
+            item.sku = "sku_" + i;
+            item.name = "Item " + i;
+            item.price = BigDecimal.valueOf(i, 2);
+            item.quantity = i % 50;
+            items.add(item);
+        }
+    }
+
+
+    @Override
+    public List<Item> resolve(Catalog parent, Void extraData) {
+        return items;
+    }
+
+}
@@ -0,0 +1,19 @@
+package pick.box.benchmarks.resolvers;
+
+import pick.box.Resolver;
+import pick.box.benchmarks.domain.Level;
+
+/**
+ * Resolves the root level and the next of every level below it
+ */
+public class LevelResolver extends Resolver<Level, Level, Void> {
+
+    @Override
+    public Level resolve(Level parent, Void extraData) {
+        Level level = new Level();
+        level.depth = (parent == null)? 0 : parent.depth + 1;
+        level.name = "Level " + level.depth;
+        return level;
+    }
+
+}
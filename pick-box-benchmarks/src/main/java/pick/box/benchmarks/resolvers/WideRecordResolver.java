@@ -0,0 +1,66 @@
+package pick.box.benchmarks.resolvers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import pick.box.Resolver;
+import pick.box.benchmarks.domain.WideRecord;
+import pick.box.benchmarks.domain.WideTable;
+
+/**
+ * Returns the same records every time, so only PickBox's work is measured
+ */
+public class WideRecordResolver extends Resolver<List<WideRecord>, WideTable, Void> {
+
+    private final List<WideRecord> records = new ArrayList<>();
+
+
+    public WideRecordResolver(int count) {
+        for (int i = 0; i < count; i++)
+            records.add(record(i));
+    }
+
+    private static WideRecord record(int i) {
+        WideRecord record = new WideRecord();
+        record.string0 = "field 0 of " + i;
+        record.string1 = "field 1 of " + i;
+        record.string2 = "field 2 of " + i;
+        record.string3 = "field 3 of " + i;
+        record.string4 = "field 4 of " + i;
+        record.string5 = "field 5 of " + i;
+        record.string6 = "field 6 of " + i;
+        record.string7 = "field 7 of " + i;
+        record.integer0 = i + 0;
+        record.integer1 = i + 1;
+        record.integer2 = i + 2;
+        record.integer3 = i + 3;
+        record.integer4 = i + 4;
+        record.integer5 = i + 5;
+        record.integer6 = i + 6;
+        record.integer7 = i + 7;
+        record.long0 = i * 1L;
+        record.long1 = i * 2L;
+        record.long2 = i * 3L;
+        record.long3 = i * 4L;
+        record.long4 = i * 5L;
+        record.long5 = i * 6L;
+        record.long6 = i * 7L;
+        record.long7 = i * 8L;
+        record.double0 = i / 2.0;
+        record.double1 = i / 3.0;
+        record.double2 = i / 4.0;
+        record.double3 = i / 5.0;
+        record.double4 = i / 6.0;
+        record.double5 = i / 7.0;
+        record.double6 = i / 8.0;
+        record.double7 = i / 9.0;
+        return record;
+    }
+
+
+    @Override
+    public List<WideRecord> resolve(WideTable parent, Void extraData) {
+        return records;
+    }
+
+}
@@ -0,0 +1,15 @@
+package pick.box.benchmarks.resolvers;
+
+import pick.box.Resolver;
+import pick.box.benchmarks.domain.WideTable;
+
+public class WideTableResolver extends Resolver<WideTable, Void, Void> {
+
+    @Override
+    public WideTable resolve(Void parent, Void extraData) {
+        WideTable table = new WideTable();
+        table.id = "table_1";
+        return table;
+    }
+
+}
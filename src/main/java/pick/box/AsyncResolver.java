@@ -0,0 +1,67 @@
+package pick.box;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * <pre>
+ * A Resolver for non blocking clients (http, database drivers etc) that returns
+ * a CompletableFuture instead of waiting for the object.
+ *
+ * With PickBox.resolveRequestAsync the response is put together as the futures
+ * complete, so no thread is blocked waiting on an AsyncResolver. AsyncResolvers
+ * and normal Resolvers can be used in the same PickBox, and an AsyncResolver
+ * still works with resolveRequest (the future is waited on).
+ *
+ *     public class OrderResolver extends AsyncResolver{@literal <}Order, Customer, String> {
+ *
+ *         public CompletableFuture{@literal <}Order> resolveAsync(Customer parent, String extraData) {
+ *             return orderClient.getOrder(parent.orderId);
+ *         }
+ *     }
+ *
+ * </pre>
+ */
+public abstract class AsyncResolver<T, P, E> extends Resolver<T, P, E> {
+
+    /**
+     * Starts getting the object, see Resolver.resolve
+     *
+     * @param parent the parent of this object if applicable
+     * @param extraData some object you provide to PickBox, given to all resolvers
+     * @return future completed with the object (which can be null)
+     */
+    public abstract CompletableFuture<T> resolveAsync(P parent, E extraData);
+
+    /**
+     * Starts getting the object with the context of the field, by default calls resolveAsync(parent, extraData)
+     */
+    public CompletableFuture<T> resolveAsync(P parent, E extraData, ResolveContext context) {
+        return resolveAsync(parent, extraData);
+    }
+
+
+    /**
+     * Calls resolveAsync and waits for the result
+     */
+    @Override
+    public T resolve(P parent, E extraData) {
+        return join(resolveAsync(parent, extraData));
+    }
+
+    @Override
+    public T resolve(P parent, E extraData, ResolveContext context) {
+        return join(resolveAsync(parent, extraData, context));
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw e;
+        }
+    }
+
+}
@@ -0,0 +1,60 @@
+package pick.box;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <pre>
+ * A Resolver that fulfills many parents with one call.
+ *
+ * When the objects of a list need a field from a resolver, PickBox calls a plain
+ * Resolver once per object. A BatchResolver is instead called once with all of
+ * the parents at that level of the response, so a database backed resolver can do
+ * one query instead of one per parent (the N+1 problem). PickBox then gives each
+ * parent the result at the same position.
+ *
+ * eg, for a university with many classes, a BatchResolver for the days of a class
+ * gets every class at once:
+ *
+ *     public class ClassDaysResolver extends BatchResolver{@literal <}List{@literal <}ClassDays>, Clazz, String> {
+ *
+ *         public List{@literal <}List{@literal <}ClassDays>> resolveBatch(List{@literal <}Clazz> classes, String extraData) {
+ *             // select * from class_days where class_code in (...)
+ *         }
+ *     }
+ *
+ * </pre>
+ */
+public abstract class BatchResolver<T, P, E> extends Resolver<T, P, E> {
+
+    /**
+     * Fulfills every parent at once
+     *
+     * @param parents the parents needing this object, as fulfilled up to this point
+     * @param extraData some object you provide to PickBox, given to all resolvers
+     * @return one result per parent, in the same order as the parents (results can be null)
+     */
+    public abstract List<T> resolveBatch(List<P> parents, E extraData);
+
+    /**
+     * Fulfills every parent at once with the context of the field, by default calls resolveBatch(parents, extraData)
+     */
+    public List<T> resolveBatch(List<P> parents, E extraData, ResolveContext context) {
+        return resolveBatch(parents, extraData);
+    }
+
+
+    /**
+     * Fulfills one parent by calling resolveBatch with just that parent
+     */
+    @Override
+    public T resolve(P parent, E extraData) {
+        return resolveBatch(Collections.singletonList(parent), extraData).get(0);
+    }
+
+    @Override
+    public T resolve(P parent, E extraData, ResolveContext context) {
+        return resolveBatch(Collections.singletonList(parent), extraData, context).get(0);
+    }
+
+}
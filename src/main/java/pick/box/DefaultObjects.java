@@ -0,0 +1,60 @@
+package pick.box;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import pick.box.exception.PickerException;
+import pick.box.json.JsonWriter;
+
+/**
+ * <pre>
+ * The default object of each class, built once, and its json. Dates in it are
+ * from when it was built.
+ * </pre>
+ */
+class DefaultObjects {
+
+    private static final ClassValue<DefaultObjects> CACHE = new ClassValue<>() {
+        @Override
+        protected DefaultObjects computeValue(Class<?> type) {
+            return new DefaultObjects(PickBox.getDefaultObject(type));
+        }
+    };
+
+
+    private final Object instance;
+    private volatile byte[] json;
+
+
+    private DefaultObjects(Object instance) {
+        this.instance = instance;
+    }
+
+
+    static DefaultObjects of(Class<?> type) {
+        return CACHE.get(type);
+    }
+
+    Object getInstance() {
+        return instance;
+    }
+
+    /**
+     * The instance as compact UTF-8 json, written the first time it's asked for
+     */
+    byte[] getJson() {
+        byte[] bytes = json;
+        if (bytes == null) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try {
+                new JsonWriter(out, false).writeValue(instance).flush();
+            } catch (IOException e) {
+                throw new PickerException("Couldn't write the default object as json", e);
+            }
+            bytes = out.toByteArray();
+            json = bytes;
+        }
+        return bytes;
+    }
+
+}
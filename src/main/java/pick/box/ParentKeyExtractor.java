@@ -0,0 +1,51 @@
+package pick.box;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import pick.box.plan.FieldKind;
+import pick.box.plan.FieldPlan;
+import pick.box.plan.ProjectionPlan;
+
+/**
+ * <pre>
+ * Gets the key PickBox uses to tell if a resolver was already called for an 
+ * equal parent while resolving a request (see PickBox.setMemoizeResolvers).
+ *
+ * Parents are usually plain objects without an equals method, so the key should
+ * be something that does have one, like the parent's id. eg
+ *
+ *     pickBox.setParentKeyExtractor(Professor.class, parent -{@literal >} ((Professor) parent).id);
+ *
+ * </pre>
+ */
+@FunctionalInterface
+public interface ParentKeyExtractor {
+
+    /**
+     * @param parent a parent about to be given to a resolver (never null)
+     * @return the key for the parent, or null if calls with this parent shouldn't be memoized
+     */
+    Object keyOf(Object parent);
+
+
+    /**
+     * <pre>
+     * The default extractor, the values of the parent's basic fields (strings, 
+     * numbers, dates, enums etc). Resolvers are called after those are filled in,
+     * so parents with the same basic fields are treated as equal.
+     * </pre>
+     */
+    static ParentKeyExtractor basicFields() {
+        return parent -> {
+            List<FieldPlan> fields = ProjectionPlan.of(parent.getClass()).getFields();
+            List<Object> key = new ArrayList<>(fields.size());
+            for (FieldPlan field : fields) {
+                if (field.getKind() == FieldKind.BASIC)
+                    key.add(field.getAccessor().get(parent));
+            }
+            return key;
+        };
+    }
+
+}
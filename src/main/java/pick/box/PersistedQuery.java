@@ -0,0 +1,35 @@
+package pick.box;
+
+import pick.box.plan.QueryPlan;
+import pick.box.plan.QueryPlanCompiler;
+import pick.box.plan.SelectionMask;
+
+/**
+ * <pre>
+ * A registered request shape and its compiled plan. The plan is recompiled if
+ * the PickBox's compiler changed since (eg a new projection engine was set).
+ * </pre>
+ */
+class PersistedQuery {
+
+    private final SelectionMask mask;
+    private volatile QueryPlan plan;
+    private volatile QueryPlanCompiler compiler;
+
+
+    PersistedQuery(SelectionMask mask, QueryPlan plan, QueryPlanCompiler compiler) {
+        this.mask = mask;
+        this.plan = plan;
+        this.compiler = compiler;
+    }
+
+
+    QueryPlan getPlan(QueryPlanCompiler current) {
+        if (compiler != current) {
+            plan = current.compile(mask);
+            compiler = current;
+        }
+        return plan;
+    }
+
+}
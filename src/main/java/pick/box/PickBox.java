@@ -1,22 +1,66 @@
 package pick.box;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.time.LocalDate;
 import java.time.temporal.Temporal;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
+import pick.box.access.FieldAccessor;
+import pick.box.annotation.CacheResults;
+import pick.box.cache.CacheStats;
+import pick.box.cache.LruCache;
+import pick.box.cache.ResolverCache;
+import pick.box.cache.ResolverCacheSettings;
+import pick.box.exception.PersistedQueryNotFoundException;
 import pick.box.exception.PickerException;
+import pick.box.exception.ResolverException;
+import pick.box.generate.Projector;
+import pick.box.json.JsonRequestReader;
+import pick.box.json.JsonSink;
+import pick.box.plan.BoundPlan;
+import pick.box.plan.FieldKind;
+import pick.box.plan.FieldPlan;
+import pick.box.plan.PlanNode;
+import pick.box.plan.ProjectionPlan;
+import pick.box.plan.QueryPlan;
+import pick.box.plan.QueryPlanCompiler;
+import pick.box.plan.SelectionMask;
+import pick.box.query.FieldArguments;
+import pick.box.query.Filter;
+import pick.box.query.Page;
+import pick.box.query.QueryArguments;
+import pick.box.query.SelectionParser;
+import pick.box.query.SelectionSet;
+import pick.box.types.TypeKey;
 import pick.box.types.TypeUtil;
 
 /**
@@ -30,229 +74,1363 @@ import pick.box.types.TypeUtil;
  * </pre>
  */
 public class PickBox {
+
+    public static final int DEFAULT_QUERY_PLAN_CACHE_SIZE = 256;
+    public static final int DEFAULT_PERSISTED_QUERY_CACHE_SIZE = 1024;
     
-    private Map<String, Resolver<?, ?, ?>> resolvers;
+    // return type -> resolver, the last one given for each type
+    private Map<TypeKey, Resolver<?, ?, ?>> resolvers;
+    // resolvers that weren't used because another returns the same type
+    private final List<String> registryProblems = new ArrayList<>();
+
+    private ProjectionEngine projectionEngine = ProjectionEngine.ACCESSOR;
+
+    private Executor resolverExecutor;
+
+    private boolean memoizeResolvers;
+    private boolean projectInPlace;
+    private final Map<Class<?>, ParentKeyExtractor> parentKeyExtractors = new ConcurrentHashMap<>();
+    private ParentKeyExtractor defaultParentKeyExtractor = ParentKeyExtractor.basicFields();
+    private final CacheStats resolverMemoStats = new CacheStats();
+
+    // resolver -> cache of its results between requests
+    private final Map<Resolver<?, ?, ?>, ResolverCache> resolverCaches = new ConcurrentHashMap<>();
+
+    // class -> ProjectionPlan bound to the resolvers of this PickBox
+    private final ClassValue<BoundPlan> plans = new ClassValue<>() {
+        @Override
+        protected BoundPlan computeValue(Class<?> type) {
+            return new BoundPlan(ProjectionPlan.of(type), resolvers);
+        }
+    };
+
+    private QueryPlanCompiler compiler;
+    private LruCache<Object, QueryPlan> queryPlans = new LruCache<>(DEFAULT_QUERY_PLAN_CACHE_SIZE);
+    // hash -> registered request shape
+    private LruCache<String, PersistedQuery> persistedQueries = new LruCache<>(DEFAULT_PERSISTED_QUERY_CACHE_SIZE);
+
+
+    /**
+     * <pre>
+     * To make a functional PickerBox, provide a list of 
+     * Resolver implementations to provide the objects
+     * in a request. 
+     * 
+     * The type arguments of every resolver are read here, once. A resolver that 
+     * doesn't give them throws a PickerException.
+     * 
+     * </pre>
+     * @param resolvers
+     */
+    public PickBox(List<Resolver<?,?,?>> resolvers) {
+        this.resolvers = new HashMap<>();
+
+        for (Resolver<?,?,?> resolver : resolvers) {
+            Resolver<?,?,?> existing = this.resolvers.put(resolver.getReturnType(), resolver);
+            if (existing != null)
+                registryProblems.add(
+                    "Resolvers " + existing.getClass().getName() + " and " + resolver.getClass().getName() + 
+                    " both return " + resolver.getReturnType() + ", only " + resolver.getClass().getName() + " is used"
+                );
+
+            CacheResults cacheResults = resolver.getClass().getAnnotation(CacheResults.class);
+            if (cacheResults != null)
+                resolverCaches.put(resolver, new ResolverCache(ResolverCacheSettings.of(cacheResults)));
+        }
+
+        this.compiler = new QueryPlanCompiler(plans::get, this.resolvers, false);
+    }
+
+
+
+    /**
+     * <pre>
+     * Checks the resolvers against the classes they fill, so mistakes show up at 
+     * startup instead of on the first request that reaches them. Every class 
+     * reachable from the request types (and from what the resolvers return) is 
+     * checked for:
+     * 
+     *  - request types no resolver returns
+     *  - resolvers filling a field of a class that isn't their parent type (a
+     *    resolver with a Void parent can only be used for requests)
+     *  - two resolvers returning the same type
+     *  - resolvers no field of the request types uses, eg one returning 
+     *    List{@literal <}Student> for an ArrayList{@literal <}Student> field 
+     *    (only checked when request types are given)
+     * 
+     * Cycles between classes (Professor.classes{@literal <}Clazz>, Clazz.professor) 
+     * are fine, requests are finite, and each class is only checked once.
+     * </pre>
+     * @param requestTypes the classes requests will be made for
+     * @throws PickerException listing every problem found
+     */
+    public void validate(Class<?>... requestTypes) {
+        List<String> problems = new ArrayList<>(registryProblems);
+
+        for (Class<?> requestType : requestTypes) {
+            if (!resolvers.containsKey(TypeKey.of(requestType)))
+                problems.add("No resolver returns request type " + requestType.getName());
+        }
+
+        Set<Resolver<?,?,?>> used = new HashSet<>();
+        for (Class<?> type : reachableClasses(requestTypes)) {
+            BoundPlan binding = plans.get(type);
+            FieldPlan[] fields = binding.getFields();
+            for (int i = 0; i < fields.length; i++) {
+                Resolver<?,?,?> resolver = binding.getResolver(i);
+                if (resolver == null)
+                    continue;
+                used.add(resolver);
+
+                Class<?> parentType = resolver.getParentType();
+                if (!parentType.isAssignableFrom(type))
+                    problems.add(
+                        "Resolver " + resolver.getClass().getName() + " fills " + type.getSimpleName() + "." + fields[i].getName() + 
+                        " but its parent type is " + parentType.getName()
+                    );
+            }
+        }
+
+        if (requestTypes.length > 0) {
+            for (Resolver<?,?,?> resolver : resolvers.values()) {
+                boolean requested = false;
+                for (Class<?> requestType : requestTypes)
+                    requested |= resolver.getReturnType().equals(TypeKey.of(requestType));
+
+                if (!requested && !used.contains(resolver))
+                    problems.add("Resolver " + resolver.getClass().getName() + " returns " + resolver.getReturnType() + " which no requested field has");
+            }
+        }
+
+        if (!problems.isEmpty())
+            throw new PickerException("Invalid resolvers:\n    " + String.join("\n    ", problems), null);
+    }
+
+    /**
+     * <pre>
+     * Builds everything PickBox would otherwise build on the first request: the 
+     * plans of every class reachable from the resolvers (field accessors, resolver
+     * bindings, default instances) and the query plans of the given requests. So 
+     * the first production requests aren't the slow ones.
+     * 
+     *     pickBox.validate(Customer.class);
+     *     pickBox.warmUp(customerSummaryRequest, customerDetailsRequest);
+     * 
+     * Call it after setProjectionEngine and setQueryPlanCacheSize, which drop plans.
+     * </pre>
+     * @param requests request objects whose query plans are compiled
+     */
+    public void warmUp(Object... requests) {
+        List<Class<?>> requestTypes = new ArrayList<>();
+        for (Object request : requests)
+            requestTypes.add(request.getClass());
+
+        for (Class<?> type : reachableClasses(requestTypes.toArray(new Class<?>[0])))
+            plans.get(type).getPlan().getDefaultInstance();
+
+        for (Object request : requests)
+            getQueryPlan(request);
+    }
+
+    /**
+     * Classes that can be in a response, from the request types and the resolvers' return types
+     */
+    private Set<Class<?>> reachableClasses(Class<?>[] requestTypes) {
+        Deque<Class<?>> pending = new ArrayDeque<>(Arrays.asList(requestTypes));
+        for (TypeKey returnType : resolvers.keySet()) {
+            TypeKey[] arguments = returnType.getArguments();
+            Class<?> type = (returnType.getRawType() == List.class && arguments.length == 1)? 
+                arguments[0].getRawType() : 
+                returnType.getRawType();
+            if (type != null)
+                pending.add(type);
+        }
+
+        Set<Class<?>> reachable = new LinkedHashSet<>();
+        while (!pending.isEmpty()) {
+            Class<?> type = pending.poll();
+            if (TypeUtil.isBasicJavaType(type) || type.isEnum() || type.isInterface() || !reachable.add(type))
+                continue;
+
+            for (FieldPlan field : ProjectionPlan.of(type).getFields()) {
+                if (field.getKind() == FieldKind.OBJECT)
+                    pending.add(field.getType());
+                else if (field.getKind() == FieldKind.LIST && field.getElementType() != null)
+                    pending.add(field.getElementType());
+            }
+        }
+        return reachable;
+    }
+
+
+
+    /**
+     * <pre>
+     * Sets how requested fields are copied into the response, see ProjectionEngine.
+     * Cached query plans are dropped. Should be set before the PickBox starts 
+     * handling requests.
+     * </pre>
+     * @param projectionEngine the engine to use
+     */
+    public void setProjectionEngine(ProjectionEngine projectionEngine) {
+        this.projectionEngine = projectionEngine;
+        this.compiler = new QueryPlanCompiler(plans::get, resolvers, projectionEngine == ProjectionEngine.GENERATED);
+        this.queryPlans.invalidateAll();
+    }
+
+    public ProjectionEngine getProjectionEngine() {
+        return projectionEngine;
+    }
+
+
+    /**
+     * <pre>
+     * Resolves sibling fields that use resolvers concurrently on the given executor,
+     * so a request for 'orders' and 'shipments' takes as long as the slower of the
+     * two instead of both added together. Pass null to go back to resolving fields
+     * one after another (the default).
+     * 
+     * In this mode a resolver is given its parent with only the fields that didn't 
+     * need a resolver filled in, and failures are thrown as a ResolverException
+     * with the path of the field that failed.
+     * 
+     * Resolvers wait on their nested resolvers, so the executor shouldn't have a 
+     * small fixed number of threads.
+     * </pre>
+     * @param executor executor to run resolvers on, or null
+     */
+    public void setResolverExecutor(Executor executor) {
+        this.resolverExecutor = executor;
+    }
+
+    /**
+     * <pre>
+     * Resolves sibling fields concurrently on ResolverExecutors.defaultExecutor(),
+     * virtual threads on JDK 21+. See setResolverExecutor.
+     * </pre>
+     */
+    public void enableConcurrentResolvers() {
+        setResolverExecutor(ResolverExecutors.defaultExecutor());
+    }
+
+    public Executor getResolverExecutor() {
+        return resolverExecutor;
+    }
+
+
+    /**
+     * <pre>
+     * Remembers the result of each resolver call while resolving a request, so a
+     * resolver is only called once for equal parents. eg the same professor reached
+     * from every class they teach. Each request starts with an empty memo.
+     * 
+     * Parents are compared by the key from their ParentKeyExtractor, by default the
+     * values of their basic fields. Batch resolvers are only given the parents that
+     * weren't already resolved. Off by default.
+     * </pre>
+     * @param memoizeResolvers true to memoize resolver calls
+     */
+    public void setMemoizeResolvers(boolean memoizeResolvers) {
+        this.memoizeResolvers = memoizeResolvers;
+    }
+
+    public boolean isMemoizingResolvers() {
+        return memoizeResolvers;
+    }
+
+
+    /**
+     * <pre>
+     * Uses the objects resolvers return as the response, nulling out the fields that
+     * weren't requested, instead of copying the requested fields into new objects.
+     * Halves the objects made per response, which adds up for wide classes. Off by
+     * default, a single resolver can opt in with Resolver.returnsFreshObjects.
+     * 
+     * Only turn it on if resolvers build new objects for every call: an object kept
+     * somewhere else (an in memory store, a cache of your own) would have its fields
+     * nulled out. Results from the memo (setMemoizeResolvers) or a resolver cache are
+     * always copied. Objects of a subclass of the field's type are copied too.
+     * </pre>
+     * @param projectInPlace true to prune resolver objects in place
+     */
+    public void setProjectInPlace(boolean projectInPlace) {
+        this.projectInPlace = projectInPlace;
+    }
+
+    public boolean isProjectingInPlace() {
+        return projectInPlace;
+    }
+
+    /**
+     * Sets how parents of the given class are keyed when memoizing resolvers, see ParentKeyExtractor
+     */
+    public void setParentKeyExtractor(Class<?> parentType, ParentKeyExtractor extractor) {
+        parentKeyExtractors.put(parentType, extractor);
+    }
+
+    /**
+     * Sets how parents without their own extractor are keyed (default ParentKeyExtractor.basicFields())
+     */
+    public void setDefaultParentKeyExtractor(ParentKeyExtractor extractor) {
+        this.defaultParentKeyExtractor = extractor;
+    }
+
+    /**
+     * Memo hits (resolver calls saved) and misses since the PickBox was made
+     */
+    public CacheStats getResolverMemoStats() {
+        return resolverMemoStats;
+    }
+
+
+    /**
+     * <pre>
+     * Caches the results of the resolver of the given class between requests, the
+     * same as putting @CacheResults on it. Results are cached by the parent's key
+     * (see setParentKeyExtractor) and the extraData of the request, so extraData 
+     * should have an equals method. Any results already cached for the resolver 
+     * are dropped.
+     * </pre>
+     * @param resolverType class of one of this PickBox's resolvers
+     * @param settings how results are cached, or null to stop caching them
+     * @return the new cache, or null if settings was null
+     */
+    public ResolverCache setResolverCache(Class<?> resolverType, ResolverCacheSettings settings) {
+        Resolver<?,?,?> resolver = findResolver(resolverType);
+        if (settings == null) {
+            resolverCaches.remove(resolver);
+            return null;
+        }
+
+        ResolverCache cache = new ResolverCache(settings);
+        resolverCaches.put(resolver, cache);
+        return cache;
+    }
+
+    /**
+     * <pre>
+     * Gets the cache of a resolver's results, to invalidate entries or read its
+     * stats. Null if the resolver's results aren't cached.
+     * </pre>
+     * @param resolverType class of one of this PickBox's resolvers
+     */
+    public ResolverCache getResolverCache(Class<?> resolverType) {
+        return resolverCaches.get(findResolver(resolverType));
+    }
+
+    private Resolver<?,?,?> findResolver(Class<?> resolverType) {
+        for (Resolver<?,?,?> resolver : resolvers.values()) {
+            if (resolver.getClass() == resolverType)
+                return resolver;
+        }
+        throw new PickerException("No resolver of type " + resolverType.getName() + " in this PickBox", null);
+    }
+
+
+
+    /**
+     * <pre>
+     * Goes through the request object looking for any fields that are not null. 
+     * If a field is not null, (has any arbitrary value) then that field will be requested
+     * from the resolvers and created in the result. 
+     * 
+     * The type T must have a no args constructor for this to work. 
+     * 
+     * The extraData is an object needed for each 
+     * resolver to fulfill their piece of the request. Say
+     * to get a Person object you need an Id for the row in 
+     * your database. You would provide this as or in the object 'extraData'. 
+     * Then when PickerBox tries to fulfill the request, it will
+     * provide your resolvers with this object.
+     * 
+     * </pre>
+     * @param <T>
+     * @param <E>
+     * @param request the object with fields that need to be resolved
+     * @param extraData an object which will be given to resolvers to help fulfill the request (can be null)
+     * @return
+     */
+    public <T, E> T resolveRequest(T request, E extraData){
+        return resolveRequest(request, extraData, null);
+    }
+
+    /**
+     * <pre>
+     * Resolves a request with arguments for its fields, like the page of a list
+     * (see QueryArguments). Resolvers get the arguments of the field they're
+     * resolving through their ResolveContext.
+     * </pre>
+     * @param request the object with fields that need to be resolved
+     * @param extraData an object which will be given to resolvers to help fulfill the request (can be null)
+     * @param arguments arguments for the fields of the request (can be null)
+     * @return
+     */
+    public <T, E> T resolveRequest(T request, E extraData, QueryArguments arguments){
+        return execute(getQueryPlan(request), extraData, arguments);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T execute(QueryPlan plan, Object extraData, QueryArguments arguments) {
+        RequestScope scope = newScope(extraData, arguments);
+
+        T response = (T) getResponseFromResolver(
+            plan.getRootResolver(), 
+            null,
+            extraData,
+            scope.contextFor(plan.getRoot())
+        );
+
+        return (T) project(plan.getRoot(), response, scope, projectsInPlace(plan.getRootResolver(), scope));
+    }
+
+
+    /**
+     * <pre>
+     * Same as resolveRequest, but returns right away with a future completed once
+     * the response is put together. No thread waits on an AsyncResolver, the rest of
+     * the response is resolved when its future completes.
+     * 
+     * Sibling fields are resolved at the same time, so (like with setResolverExecutor)
+     * a resolver is given its parent with only the fields that didn't need a resolver
+     * filled in. Normal Resolvers are called on the resolver executor if one is set, 
+     * otherwise on whichever thread gets to them.
+     * 
+     * If a resolver fails the future completes exceptionally with a ResolverException
+     * giving the path of the field.
+     * </pre>
+     * @param request the object with fields that need to be resolved
+     * @param extraData an object which will be given to resolvers to help fulfill the request (can be null)
+     * @return future of the response
+     */
+    public <T, E> CompletableFuture<T> resolveRequestAsync(T request, E extraData) {
+        return resolveRequestAsync(request, extraData, null);
+    }
+
+    /**
+     * resolveRequestAsync with arguments for the fields of the request, see resolveRequest(request, extraData, arguments)
+     */
+    public <T, E> CompletableFuture<T> resolveRequestAsync(T request, E extraData, QueryArguments arguments) {
+        try {
+            return executeAsync(getQueryPlan(request), extraData, arguments);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> executeAsync(QueryPlan plan, Object extraData, QueryArguments arguments) {
+        RequestScope scope = newScope(extraData, arguments);
+        ResolveContext context = scope.contextFor(plan.getRoot());
+        return callResolverAsync(plan.getRootResolver(), Collections.singletonList(null), extraData, context)
+            .thenCompose(responses -> projectAllAsync(plan.getRoot(), responses, scope, projectsInPlace(plan.getRootResolver(), scope)))
+            .thenApply(mappedResponses -> (T) mappedResponses.get(0));
+    }
+
+
+    /**
+     * <pre>
+     * Resolves a request like resolveRequest, but sends the response straight to a
+     * sink (eg a JsonWriter) instead of returning it. Neither the response object nor
+     * maps of it are built, fields are read from what the resolvers return and written 
+     * out, which saves a lot of garbage for big responses. The json is the same as
+     * writing PickerUtil.mapify(resolveRequest(request, extraData)).
+     * 
+     * With a selection (resolveSelectionTo) only the primitive fields the selection
+     * names are written. The object from resolveSelection still has the other
+     * primitive fields, at their default values, so mapify of it writes those too.
+     * 
+     * The difference for resolvers is they're given the object their parent's resolver
+     * returned as the parent, instead of a copy with just the requested fields. Fields 
+     * are resolved one after another, the resolver executor isn't used.
+     * 
+     *     JsonWriter json = new JsonWriter(outputStream, false);
+     *     pickBox.resolveTo(request, extraData, json);
+     *     json.flush();
+     * 
+     * </pre>
+     * @param request the object with fields that need to be resolved
+     * @param extraData an object which will be given to resolvers to help fulfill the request (can be null)
+     * @param sink where the response is written
+     */
+    public <T, E> void resolveTo(T request, E extraData, JsonSink sink) throws IOException {
+        resolveTo(request, extraData, null, sink);
+    }
+
+    /**
+     * resolveTo with arguments for the fields of the request, see resolveRequest(request, extraData, arguments)
+     */
+    public <T, E> void resolveTo(T request, E extraData, QueryArguments arguments, JsonSink sink) throws IOException {
+        executeTo(getQueryPlan(request), extraData, arguments, sink);
+    }
+
+    private void executeTo(QueryPlan plan, Object extraData, QueryArguments arguments, JsonSink sink) throws IOException {
+        RequestScope scope = newScope(extraData, arguments);
+        Object response = getResponseFromResolver(plan.getRootResolver(), null, extraData, scope.contextFor(plan.getRoot()));
+        new ResponseStreamer(this, scope, sink).stream(plan.getRoot(), response);
+    }
+
+
+    /**
+     * <pre>
+     * Gets the compiled plan for the shape of a request, compiling it the first
+     * time the shape is seen. Plans are kept in a size bounded LRU cache.
+     * </pre>
+     * @param request request object
+     * @return the plan used to execute the request
+     */
+    public QueryPlan getQueryPlan(Object request) {
+        return getQueryPlan(SelectionMask.of(request));
+    }
+
+    /**
+     * <pre>
+     * Gets the compiled plan for a request shape, compiling it the first time the
+     * shape is seen. Plans are kept in a size bounded LRU cache, by mask.
+     * </pre>
+     * @param mask the fields requested, see SelectionMask
+     * @return the plan used to execute the request
+     */
+    public QueryPlan getQueryPlan(SelectionMask mask) {
+        return queryPlans.computeIfAbsent(mask, key -> compiler.compile(mask));
+    }
+
+
+    /**
+     * <pre>
+     * Resolves a response of a class with the fields in a selection string, instead 
+     * of a request object. eg
+     * 
+     *     Customer customer = pickBox.resolveSelection(
+     *         Customer.class, 
+     *         "name,orders{orderId,orderLines{itemId,quantity}}", 
+     *         "cus_1"
+     *     );
+     * 
+     * is the same as resolveRequest with a Customer whose name, orders, orderId etc 
+     * aren't null. See SelectionParser for the format. Fields are checked against the 
+     * class when the selection is first seen; a PickerException is thrown if one 
+     * doesn't exist, or an object or list of objects has no nested selection.
+     * </pre>
+     * @param type the class of the response
+     * @param selection the fields wanted
+     * @param extraData an object which will be given to resolvers to help fulfill the request (can be null)
+     * @return the response, with only the selected fields
+     */
+    public <T, E> T resolveSelection(Class<T> type, String selection, E extraData) {
+        return resolveSelection(type, selection, extraData, null);
+    }
+
+    /**
+     * resolveSelection with arguments for the fields of the request, see resolveRequest(request, extraData, arguments)
+     */
+    public <T, E> T resolveSelection(Class<T> type, String selection, E extraData, QueryArguments arguments) {
+        return execute(getQueryPlan(type, selection), extraData, arguments);
+    }
+
+    /**
+     * resolveSelection with an already parsed selection, eg from SelectionParser or JsonRequestReader
+     */
+    public <T, E> T resolveSelection(Class<T> type, SelectionSet selection, E extraData, QueryArguments arguments) {
+        return execute(getQueryPlan(type, selection), extraData, arguments);
+    }
+
+    /**
+     * <pre>
+     * Resolves a json request object read straight from the request body, without
+     * binding it to the request class. Gives the same response as resolveRequest with 
+     * the request bound to the class (primitive fields are selected whether they're 
+     * in the json or not, like they are in a bound object), see JsonRequestReader.
+     * </pre>
+     * @param type the request class
+     * @param json the request object as UTF-8 json (not closed)
+     * @param extraData an object which will be given to resolvers to help fulfill the request (can be null)
+     * @return the response
+     */
+    public <T, E> T resolveJsonRequest(Class<T> type, InputStream json, E extraData) throws IOException {
+        return resolveSelection(type, JsonRequestReader.read(type, json), extraData, null);
+    }
+
+    /**
+     * <pre>
+     * Resolves the request with the shape of a SelectionMask, eg one made once from a
+     * request object with SelectionMask.of(request) and reused.
+     * </pre>
+     */
+    @SuppressWarnings("unchecked")
+    public <T, E> T resolveSelection(SelectionMask mask, E extraData, QueryArguments arguments) {
+        return (T) execute(getQueryPlan(mask), extraData, arguments);
+    }
+
+    /**
+     * resolveRequestAsync with a selection string, see resolveSelection
+     */
+    public <T, E> CompletableFuture<T> resolveSelectionAsync(Class<T> type, String selection, E extraData, QueryArguments arguments) {
+        try {
+            return executeAsync(getQueryPlan(type, selection), extraData, arguments);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * <pre>
+     * resolveTo with a selection string, see resolveSelection. Primitive fields the
+     * selection doesn't name are left out of the json (see resolveTo).
+     * </pre>
+     */
+    public <E> void resolveSelectionTo(Class<?> type, String selection, E extraData, QueryArguments arguments, JsonSink sink) throws IOException {
+        executeTo(getQueryPlan(type, selection), extraData, arguments, sink);
+    }
+
+    /**
+     * <pre>
+     * Gets the compiled plan for a selection of a class, compiling it the first 
+     * time the selection is seen.
+     * </pre>
+     * @param type the class of the response
+     * @param selection the fields wanted
+     * @return the plan used to execute the selection
+     */
+    public QueryPlan getQueryPlan(Class<?> type, SelectionSet selection) {
+        return getQueryPlan(SelectionMask.of(type, selection));
+    }
+
+    /**
+     * getQueryPlan for a selection string, cached by the string so a selection seen before isn't parsed again
+     */
+    public QueryPlan getQueryPlan(Class<?> type, String selection) {
+        // '#' can't be in a class name, so these keys never clash with other plans
+        return queryPlans.computeIfAbsent(type.getName() + '#' + selection, key -> 
+            compiler.compile(SelectionMask.of(type, SelectionParser.parse(selection)))
+        );
+    }
+
+    /**
+     * Hit, miss and eviction counts of the query plan cache
+     */
+    public CacheStats getQueryPlanStats() {
+        return queryPlans.getStats();
+    }
+
+    /**
+     * <pre>
+     * Sets how many query plans are kept (default 256). Cached plans are dropped.
+     * Should be set before the PickBox starts handling requests.
+     * </pre>
+     * @param maxSize max number of plans kept
+     */
+    public void setQueryPlanCacheSize(int maxSize) {
+        this.queryPlans = new LruCache<>(maxSize);
+    }
+
+
+    /**
+     * <pre>
+     * Registers the shape of a request as a persisted query, returning the hash to
+     * call it by with resolvePersistedQuery. Clients can then send just the hash
+     * (and extraData) instead of the whole request, and the PickBox skips reading
+     * the request and looking up its plan.
+     * 
+     * Queries can be registered at startup, or on first use: when a client calls a
+     * hash that isn't registered it gets a PersistedQueryNotFoundException, sends
+     * the full request once, and the server registers it. The hash is the SHA-256 of 
+     * the request's fingerprint (see QueryPlan.getHash). The fingerprint's fields are
+     * sorted by name (the format is in the QueryPlanCompiler doc), so the hash is the 
+     * same after a restart, or on another JVM, and clients can work it out themselves.
+     * </pre>
+     * @param request request object, only its shape is used
+     * @return hash of the query
+     */
+    public String registerQuery(Object request) {
+        return registerQuery(SelectionMask.of(request));
+    }
+
+    /**
+     * registerQuery for a selection string, see resolveSelection
+     */
+    public String registerQuery(Class<?> type, String selection) {
+        return registerQuery(SelectionMask.of(type, SelectionParser.parse(selection)));
+    }
+
+    /**
+     * registerQuery for a request shape
+     */
+    public String registerQuery(SelectionMask mask) {
+        QueryPlan plan = getQueryPlan(mask);
+        String hash = plan.getHash();
+        persistedQueries.computeIfAbsent(hash, key -> new PersistedQuery(mask, plan, compiler));
+        return hash;
+    }
+
+    /**
+     * True if a query is registered with the hash (and hasn't been evicted)
+     */
+    public boolean isQueryRegistered(String hash) {
+        return persistedQueries.containsKey(hash);
+    }
+
+    /**
+     * Resolves a registered query, see registerQuery
+     *
+     * @param hash hash returned by registerQuery
+     * @param extraData an object which will be given to resolvers to help fulfill the request (can be null)
+     * @return the response
+     * @throws PersistedQueryNotFoundException if no query is registered with the hash
+     */
+    public <T, E> T resolvePersistedQuery(String hash, E extraData) {
+        return resolvePersistedQuery(hash, extraData, null);
+    }
+
+    /**
+     * resolvePersistedQuery with arguments for the fields of the request, see resolveRequest(request, extraData, arguments)
+     */
+    @SuppressWarnings("unchecked")
+    public <T, E> T resolvePersistedQuery(String hash, E extraData, QueryArguments arguments) {
+        return (T) execute(getPersistedPlan(hash), extraData, arguments);
+    }
+
+    /**
+     * resolveTo for a registered query, see registerQuery
+     */
+    public <E> void resolvePersistedQueryTo(String hash, E extraData, QueryArguments arguments, JsonSink sink) throws IOException {
+        executeTo(getPersistedPlan(hash), extraData, arguments, sink);
+    }
+
+    private QueryPlan getPersistedPlan(String hash) {
+        PersistedQuery query = persistedQueries.get(hash);
+        if (query == null)
+            throw new PersistedQueryNotFoundException(hash);
+        return query.getPlan(compiler);
+    }
+
+    /**
+     * Hit, miss and eviction counts of the persisted query registry
+     */
+    public CacheStats getPersistedQueryStats() {
+        return persistedQueries.getStats();
+    }
+
+    /**
+     * <pre>
+     * Sets how many persisted queries are kept (default 1024), the least recently 
+     * used are evicted past that. Registered queries are dropped. Should be set 
+     * before queries are registered.
+     * </pre>
+     * @param maxSize max number of persisted queries kept
+     */
+    public void setPersistedQueryCacheSize(int maxSize) {
+        this.persistedQueries = new LruCache<>(maxSize);
+    }
+
 
+    private RequestScope newScope(Object extraData, QueryArguments arguments) {
+        ResolverMemo memo = (memoizeResolvers)? new ResolverMemo(this::getParentKey, resolverMemoStats) : null;
+        return new RequestScope(extraData, memo, arguments);
+    }
+
+    private Object getParentKey(Object parent) {
+        return parentKeyExtractors.getOrDefault(parent.getClass(), defaultParentKeyExtractor).keyOf(parent);
+    }
 
     /**
      * <pre>
-     * To make a functional PickerBox, provide a list of 
-     * Resolver implementations to provide the objects
-     * in a request. 
-     * 
+     * True if the objects the resolver returns can be used as the response instead
+     * of being copied. Never for results that can be handed out more than once (by
+     * the memo or the resolver's cache), the same object could be projected for two
+     * different selections.
+     * </pre>
+     */
+    private boolean projectsInPlace(Resolver<?,?,?> resolver, RequestScope scope) {
+        return resolver != null
+            && (projectInPlace || resolver.returnsFreshObjects())
+            && scope.getMemo() == null
+            && !resolverCaches.containsKey(resolver);
+    }
+
+    private Object project(PlanNode node, Object response, RequestScope scope, boolean inPlace) {
+        return projectAll(node, Collections.singletonList(response), scope, inPlace).get(0);
+    }
+
+    /**
+     * <pre>
+     * Projects every object at one level of the response together, so each field
+     * can be resolved for all of them before moving on to the next field. That
+     * lets batch resolvers fulfill the whole level with one call. Each object still
+     * sees its fields filled in the same order as if it were projected alone.
      * 
+     * With inPlace the responses are pruned and used as the mapped objects.
      * </pre>
-     * @param resolvers
      */
-    public PickBox(List<Resolver<?,?,?>> resolvers) {
-        this.resolvers = new HashMap<>();
+    private List<Object> projectAll(PlanNode node, List<?> responses, RequestScope scope, boolean inPlace) {
+        if (node == PlanNode.VALUE)
+            return new ArrayList<>(responses);
 
-        for (Resolver<?,?,?> resolver : resolvers) {
-            this.resolvers.put(resolver.getReturnTypeName(), resolver);
+        FieldPlan[] fields = node.getFields();
+
+        List<Object> present = new ArrayList<>(responses.size());
+        List<Object> presentMapped = new ArrayList<>(responses.size());
+        List<Object> mappedResponses = newMappedResponses(node, responses, present, presentMapped, inPlace);
+
+        if (resolverExecutor != null) {
+            projectFieldsConcurrently(node, present, presentMapped, scope);
+            return mappedResponses;
         }
-    }
 
+        // non blocking fields come first in the plan, then fields using resolvers
+        // so most complete parent object can be provided
+        for (int i = 0; i < fields.length; i++) {
+            List<Object> unresolved = copyField(node, i, present, presentMapped, scope);
+            if (!unresolved.isEmpty())
+                setField(fields[i], unresolved, resolveField(node, i, unresolved, scope));
+        }
 
+        return mappedResponses;
+    }
 
     /**
      * <pre>
-     * Goes through the request object looking for any fields that are not null. 
-     * If a field is not null, (has any arbitrary value) then that field will be requested
-     * from the resolvers and created in the result. 
-     * 
-     * The type T must have a no args constructor for this to work. 
-     * 
-     * The extraData is an object needed for each 
-     * resolver to fulfill their piece of the request. Say
-     * to get a Person object you need an Id for the row in 
-     * your database. You would provide this as or in the object 'extraData'. 
-     * Then when PickerBox tries to fulfill the request, it will
-     * provide your resolvers with this object.
+     * Makes the mapped object for each response with its basic fields projected. 
+     * The non null responses and their mapped objects are added to 'present' and
+     * 'presentMapped' since only those still need fields copied or resolved.
      * 
+     * In place, a response of exactly the node's class is its own mapped object: 
+     * the unrequested fields are nulled (or set back to their default for 
+     * primitives) and the requested ones are left where they are. Subclasses are
+     * still copied so their extra fields don't end up in the response.
      * </pre>
-     * @param <T>
-     * @param <E>
-     * @param request the object with fields that need to be resolved
-     * @param extraData an object which will be given to resolvers to help fulfill the request (can be null)
-     * @return
      */
-    @SuppressWarnings("unchecked")
-    public <T, E> T resolveRequest(T request, E extraData){
-        T response = (T) getResponseFromResolver(
-            Resolver.buildResolverReturnTypeName(request.getClass()), 
-            null,
-            extraData
-        );
+    private List<Object> newMappedResponses(PlanNode node, List<?> responses, List<Object> present, List<Object> presentMapped, boolean inPlace) {
+        FieldPlan[] fields = node.getFields();
+        Projector projector = node.getProjector();
+        List<Object> mappedResponses = new ArrayList<>(responses.size());
+
+        for (Object response : responses) {
+            Object mappedResponse;
+            if (response == null) {
+                mappedResponse = node.getPlan().newInstance();
+                for (FieldPlan field : node.getUnselected())
+                    field.getAccessor().set(mappedResponse, null);
+                for (FieldPlan field : fields) {
+                    if (!field.isPrimitive())
+                        field.getAccessor().set(mappedResponse, null);
+                }
+            }
+            else if (inPlace && response.getClass() == node.getPlan().getType()) {
+                mappedResponse = response;
+                for (FieldPlan field : node.getUnselected())
+                    field.getAccessor().set(mappedResponse, null);
+                if (node.getUnselectedPrimitives().length > 0) {
+                    Object defaults = node.getPlan().getDefaultInstance();
+                    for (FieldPlan field : node.getUnselectedPrimitives())
+                        field.getAccessor().copy(defaults, mappedResponse);
+                }
+                present.add(response);
+                presentMapped.add(mappedResponse);
+            }
+            else if (projector != null) {
+                // the projector copies the basic fields and nulls out the unrequested ones
+                mappedResponse = projector.project(response);
+                present.add(response);
+                presentMapped.add(mappedResponse);
+            }
+            else {
+                mappedResponse = node.getPlan().newInstance();
+                for (FieldPlan field : node.getUnselected())
+                    field.getAccessor().set(mappedResponse, null);
+                present.add(response);
+                presentMapped.add(mappedResponse);
+            }
+            mappedResponses.add(mappedResponse);
+        }
+        return mappedResponses;
+    }
+
+    /**
+     * <pre>
+     * Copies a field the responses already provide, returning the mapped
+     * responses that still need the field resolved. Lists the request gave a filter
+     * or page are filtered and paged as they're copied.
+     * </pre>
+     */
+    private List<Object> copyField(PlanNode node, int position, List<Object> responses, List<Object> mappedResponses, RequestScope scope) {
+        FieldPlan field = node.getFields()[position];
+        FieldAccessor accessor = field.getAccessor();
+
+        // responses projected in place are their own mapped objects, nothing to copy
+        if (field.getKind() == FieldKind.BASIC) {
+            if (node.getProjector() == null) {
+                for (int j = 0; j < responses.size(); j++) {
+                    if (responses.get(j) != mappedResponses.get(j))
+                        accessor.copy(responses.get(j), mappedResponses.get(j));
+                }
+            }
+            return Collections.emptyList();
+        }
 
-        return getRequestedFields(request, response, extraData);
+        ResolveContext context = (field.getKind() == FieldKind.LIST && scope.hasArguments(node, position))?
+            scope.contextFor(node, position) :
+            null;
+
+        List<Object> unresolved = new ArrayList<>();
+        for (int j = 0; j < responses.size(); j++) {
+            // check if response already provided the field
+            if (!accessor.isNull(responses.get(j))) {
+                if (context != null)
+                    accessor.set(mappedResponses.get(j), applySuppliedArguments(accessor.get(responses.get(j)), context));
+                else if (responses.get(j) != mappedResponses.get(j))
+                    accessor.copy(responses.get(j), mappedResponses.get(j));
+            }
+            else
+                unresolved.add(mappedResponses.get(j));
+        }
+        return unresolved;
     }
 
-    private <T, E> T getRequestedFields(T request, T response, E extraData){
+    /**
+     * <pre>
+     * Resolves the fields of a node concurrently on the resolver executor. Every
+     * resolver sees the parent with the fields that didn't need resolving, and 
+     * the results are set in field order once all of them are done so the response
+     * is the same every time.
+     * </pre>
+     */
+    private void projectFieldsConcurrently(PlanNode node, List<Object> responses, List<Object> mappedResponses, RequestScope scope) {
+        FieldPlan[] fields = node.getFields();
 
-        Class<?> objectType = request.getClass();
-        T mappedResponse = TypeUtil.makeWithNoArgsConstructor(objectType);
+        List<Integer> positions = new ArrayList<>();
+        List<List<Object>> parents = new ArrayList<>();
+        int resolverCount = 0;
+        for (int i = 0; i < fields.length; i++) {
+            List<Object> unresolved = copyField(node, i, responses, mappedResponses, scope);
+            if (!unresolved.isEmpty()) {
+                positions.add(i);
+                parents.add(unresolved);
+                if (node.getResolver(i) != null)
+                    resolverCount++;
+            }
+        }
 
-        Field[] fields = objectType.getFields();
+        List<CompletableFuture<List<Object>>> results = new ArrayList<>(positions.size());
+        for (int k = 0; k < positions.size(); k++) {
+            int position = positions.get(k);
+            List<Object> fieldParents = parents.get(k);
+            if (resolverCount > 1 && node.getResolver(position) != null) {
+                results.add(CompletableFuture.supplyAsync(
+                    () -> resolveField(node, position, fieldParents, scope),
+                    resolverExecutor
+                ));
+            }
+            else {
+                try {
+                    results.add(CompletableFuture.completedFuture(resolveField(node, position, fieldParents, scope)));
+                } catch (RuntimeException e) {
+                    results.add(CompletableFuture.failedFuture(e));
+                }
+            }
+        }
 
-        List<Field> nonBlockingFields = new ArrayList<>();
-        List<Field> resolverFields = new ArrayList<>();
-        
-        // determine which fields are done with resolvers and do those last
-        Arrays.stream(fields)
-            .forEach(field -> {
-                String resolverTypeName = Resolver.buildResolverReturnTypeName(field);
-                if (this.resolvers.containsKey(resolverTypeName)) 
-                    resolverFields.add(field);
-                else
-                    nonBlockingFields.add(field);
-            });
+        for (int k = 0; k < positions.size(); k++) {
+            int position = positions.get(k);
+            setField(fields[position], parents.get(k), join(results.get(k), node.getFieldPath(position)));
+        }
+    }
 
-        Field currentField = null;
-        try {
-            // do the non blocking (ie fields with defined resolvers) first
-            for (Field field : nonBlockingFields) {
-                boolean originalAccessibility = field.canAccess(request);
-                field.setAccessible(true);
+    /**
+     * <pre>
+     * projectAll for resolveRequestAsync. Fields the responses provide are copied first,
+     * then every field that needs resolving is started and the results are set in 
+     * field order once all of them complete.
+     * </pre>
+     */
+    private CompletableFuture<List<Object>> projectAllAsync(PlanNode node, List<?> responses, RequestScope scope, boolean inPlace) {
+        if (node == PlanNode.VALUE)
+            return CompletableFuture.completedFuture(new ArrayList<>(responses));
 
-                currentField = field; // for errors below
+        FieldPlan[] fields = node.getFields();
 
-                field.set(
-                    mappedResponse, 
-                    resolveField(field, request, response, mappedResponse, extraData)
-                );
-                
-                field.setAccessible(originalAccessibility);
+        List<Object> present = new ArrayList<>(responses.size());
+        List<Object> presentMapped = new ArrayList<>(responses.size());
+        List<Object> mappedResponses = newMappedResponses(node, responses, present, presentMapped, inPlace);
+
+        List<Integer> positions = new ArrayList<>();
+        List<List<Object>> parents = new ArrayList<>();
+        for (int i = 0; i < fields.length; i++) {
+            List<Object> unresolved = copyField(node, i, present, presentMapped, scope);
+            if (!unresolved.isEmpty()) {
+                positions.add(i);
+                parents.add(unresolved);
             }
-            // then do fields using resolvers so most complete parent object can be provided
-            for (Field field : resolverFields) {
-                boolean originalAccessibility = field.canAccess(request);
-                field.setAccessible(true);
+        }
 
-                currentField = field; // for errors below
+        List<CompletableFuture<List<Object>>> results = new ArrayList<>(positions.size());
+        for (int k = 0; k < positions.size(); k++) {
+            try {
+                results.add(resolveFieldAsync(node, positions.get(k), parents.get(k), scope));
+            } catch (RuntimeException e) {
+                results.add(CompletableFuture.failedFuture(e));
+            }
+        }
 
-                field.set(
-                    mappedResponse, 
-                    resolveField(field, request, response, mappedResponse, extraData)
-                );
-                
-                field.setAccessible(originalAccessibility);
+        return CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).handle((done, failure) -> {
+            for (int k = 0; k < positions.size(); k++) {
+                int position = positions.get(k);
+                setField(fields[position], parents.get(k), join(results.get(k), node.getFieldPath(position)));
             }
-            
-        } catch (IllegalArgumentException e) {
-            throw new PickerException("Tried to map bad value to field '" + currentField.getName() + "' in class '" + objectType.getName() + "'", e);
-        }  catch (IllegalAccessException e) {
-            throw new PickerException("Couldn't access field '" + currentField.getName() + "' in class '" + objectType.getName() + "'", e);
-        } 
-        
-        return mappedResponse;
+            return mappedResponses;
+        });
     }
 
-    private <T, E> Object resolveField(Field field, T request, T response, T parent, E extraData) {
+    /**
+     * resolveField for resolveRequestAsync
+     */
+    private CompletableFuture<List<Object>> resolveFieldAsync(PlanNode node, int position, List<Object> parents, RequestScope scope) {
+        FieldPlan field = node.getFields()[position];
+        PlanNode child = node.getChild(position);
+
+        if (field.getKind() == FieldKind.MAP)
+            return CompletableFuture.completedFuture(newMaps(parents.size()));
+
+        if (field.getKind() == FieldKind.LIST && child == null)
+            throw new PickerException("List for field " + field.getName() + " was empty so fulfillment couldn't be completed.", null);
+
+        Resolver<?,?,?> resolver = node.getResolver(position);
+        ResolveContext context = scope.contextFor(node, position);
+        CompletableFuture<List<?>> fieldResponses = getResponsesFromResolverAsync(resolver, parents, scope, context);
+        boolean inPlace = projectsInPlace(resolver, scope);
+
+        if (field.getKind() == FieldKind.LIST) {
+            return fieldResponses.thenCompose(responses -> {
+                int[] sizes = new int[parents.size()];
+                List<Object> elements = flattenLists(applyArguments(responses, resolver, context), sizes);
+                return projectAllAsync(child, elements, scope, inPlace).thenApply(projected -> splitLists(projected, sizes));
+            });
+        }
+        return fieldResponses.thenCompose(responses -> projectAllAsync(child, responses, scope, inPlace));
+    }
 
+    private static List<Object> join(CompletableFuture<List<Object>> result, String fieldPath) {
         try {
-            if (field.get(request) == null) 
-                return null;
+            return result.join();
+        } catch (CompletionException | CancellationException e) {
+            throw fieldFailure(e, fieldPath);
+        }
+    }
 
-                
-            Object value = null;
+    /**
+     * Unwraps a failure from a future, adding the path of the field if it doesn't have one yet
+     */
+    private static RuntimeException fieldFailure(Throwable failure, String fieldPath) {
+        Throwable cause = failure;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null)
+            cause = cause.getCause();
 
-            // check if response already provided the field
-            if (response == null) {
-                return value;
-            } 
-            else if (field.get(response) != null) {
-                value = field.get(response);
-            }
-            // check if the field is a list
-            else if (List.class.isAssignableFrom(field.getType())) {
-                List<Object> list = new ArrayList<>();
+        if (cause instanceof ResolverException resolverException)
+            return resolverException;
+        if (cause instanceof Error error)
+            throw error;
+        if (cause instanceof Exception exception)
+            return new ResolverException(fieldPath, exception);
+        return new ResolverException(fieldPath, new RuntimeException(cause));
+    }
 
-                List<?> reqList = TypeUtil.safeCast(field.get(request), List.class);
-                if (reqList.isEmpty())
-                        throw new PickerException("List for field " + field.getName() + " was empty so fulfillment couldn't be completed.", null);
+    private static void setField(FieldPlan field, List<Object> parents, List<Object> values) {
+        FieldAccessor accessor = field.getAccessor();
+        for (int j = 0; j < parents.size(); j++)
+            accessor.set(parents.get(j), values.get(j));
+    }
 
-                Object reqO = reqList.get(0);
+    /**
+     * Resolves a field for the given parents, returning the value for each parent
+     */
+    private List<Object> resolveField(PlanNode node, int position, List<Object> parents, RequestScope scope) {
+        FieldPlan field = node.getFields()[position];
+        PlanNode child = node.getChild(position);
 
-                Object fieldResponse = getResponseFromResolver(
-                    Resolver.buildResolverReturnTypeName(field), 
-                    parent,
-                    extraData
-                );
+        // a map the response didn't provide
+        if (field.getKind() == FieldKind.MAP)
+            return newMaps(parents.size());
 
-                if (fieldResponse != null) {
-                    List<?> resList = TypeUtil.safeCast(fieldResponse, List.class);
-                    for (Object o : resList) {
-                        list.add(
-                            getRequestedFields(reqO, o, extraData)
-                        );
-                    }
-                    value = list;
-                }
-                else {
-                    value = new ArrayList<>();
-                }
-                
+        if (field.getKind() == FieldKind.LIST && child == null)
+            throw new PickerException("List for field " + field.getName() + " was empty so fulfillment couldn't be completed.", null);
+
+        Resolver<?,?,?> resolver = node.getResolver(position);
+        ResolveContext context = scope.contextFor(node, position);
+        List<?> fieldResponses = getResponsesFromResolver(resolver, parents, scope, context);
+
+        // check if the field is a list
+        if (field.getKind() == FieldKind.LIST) {
+            // project the elements of every list together then split them back up
+            int[] sizes = new int[parents.size()];
+            List<Object> elements = flattenLists(applyArguments(fieldResponses, resolver, context), sizes);
+            return splitLists(projectAll(child, elements, scope, projectsInPlace(resolver, scope)), sizes);
+        }
+        // otherwise we need to fulfill it with a resolver
+        else {
+            return projectAll(child, fieldResponses, scope, projectsInPlace(resolver, scope));
+        }
+    }
+
+    private static List<Object> newMaps(int count) {
+        List<Object> maps = new ArrayList<>(count);
+        for (int j = 0; j < count; j++)
+            maps.add(new HashMap<>());
+        return maps;
+    }
+
+    /**
+     * <pre>
+     * Applies the filter and page the request gave a list field to the resolved lists,
+     * for the parts the resolver didn't apply itself. Only the limit of the page is 
+     * enforced if the resolver applied the page.
+     * </pre>
+     */
+    static List<?> applyArguments(List<?> fieldResponses, Resolver<?,?,?> resolver, ResolveContext context) {
+        checkArguments(resolver, context);
+        Filter filter = (resolver != null && resolver.appliesFilter())? null : context.getFilter();
+        Page page = context.getPage();
+        if (page == null && filter == null)
+            return fieldResponses;
+
+        boolean pageApplied = resolver != null && resolver.appliesPaging();
+        List<Object> results = new ArrayList<>(fieldResponses.size());
+        for (Object fieldResponse : fieldResponses) {
+            if (fieldResponse == null) {
+                results.add(null);
+                continue;
             }
-            // check if the field is a map
-            else if (Map.class.isAssignableFrom(field.getType())) {
-                Map<Object, Object> map = new HashMap<>();
-
-                value = field.get(response);
-                if (value != null) {
-                    Map<?, ?> reqMap = TypeUtil.safeCast(field.get(response), Map.class);
-                    if (reqMap.isEmpty())
-                        throw new PickerException("Map for field " + field.getName() + " was empty so fulfillment couldn't be completed.", null);
-
-                    Object reqOVal = reqMap.values().iterator().next();
-
-                    Map<?, ?> resMap = TypeUtil.safeCast(field.get(response), Map.class);
-                    for (Entry<?, ?> entry : resMap.entrySet()) {
-                        Object key = entry.getKey();
-                        Object val = entry.getValue();
-                        val = getRequestedFields(reqOVal, val, extraData);
-                        map.put(key, val);
-                    }
-
-                    value = map;
-                }
-                else {
-                    value = new HashMap<>();
-                }
+            List<?> list = TypeUtil.safeCast(fieldResponse, List.class);
+            if (filter != null)
+                list = filter.apply(list);
+            if (page != null)
+                list = page.apply(list, pageApplied);
+            results.add(list);
+        }
+        return results;
+    }
+
+    /**
+     * <pre>
+     * Applies the filter and page a list field was given to a list the parent's 
+     * response provided, the filter first like for resolved lists. No resolver saw
+     * the arguments, so PickBox applies all of them.
+     * </pre>
+     */
+    static List<?> applySuppliedArguments(Object suppliedList, ResolveContext context) {
+        checkArguments(null, context);
+        List<?> list = TypeUtil.safeCast(suppliedList, List.class);
+        Filter filter = context.getFilter();
+        if (filter != null)
+            list = filter.apply(list);
+        Page page = context.getPage();
+        return (page == null)? list : page.apply(list, false);
+    }
+
+    /**
+     * <pre>
+     * Checks PickBox can apply the page and filter of a field the resolver doesn't
+     * apply itself. A page after a cursor can't be, only the resolver knows what the
+     * cursor means. Neither can a filter on a list the resolver already paged, the
+     * page would come out short (or empty) instead of a page of the filtered list.
+     * </pre>
+     * @throws PickerException naming the field if its arguments can't be applied
+     */
+    static void checkArguments(Resolver<?,?,?> resolver, ResolveContext context) {
+        Page page = context.getPage();
+        boolean pageApplied = resolver != null && resolver.appliesPaging();
+        if (page != null && page.getCursor() != null && !pageApplied) {
+            throw new PickerException(
+                "Field " + context.getFieldPath() + " was given a page after a cursor, but " + 
+                ((resolver == null)? "the list is paged by PickBox (it has no resolver, or the parent's response provided it)" : "its resolver " + resolver.getClass().getName() + " doesn't apply paging") + 
+                ". Only resolvers can page by cursor (see Resolver.appliesPaging)",
+                null
+            );
+        }
+
+        if (pageApplied && !resolver.appliesFilter() && context.getFilter() != null) {
+            throw new PickerException(
+                "Field " + context.getFieldPath() + " was given a filter, but its resolver " + resolver.getClass().getName() + 
+                " applies paging and not the filter. A resolver that pages has to apply the filter too (see Resolver.appliesFilter)",
+                null
+            );
+        }
+    }
+
+    /**
+     * Puts the elements of the resolved lists in one list, recording the size of each (-1 for null)
+     */
+    static List<Object> flattenLists(List<?> fieldResponses, int[] sizes) {
+        List<Object> elements = new ArrayList<>();
+        for (int j = 0; j < sizes.length; j++) {
+            Object fieldResponse = fieldResponses.get(j);
+            if (fieldResponse == null) {
+                sizes[j] = -1;
+                continue;
             }
-            // check if the field is a basic java type or enum
-            else if (TypeUtil.isBasicJavaType(field.getType()) || field.getType().isEnum()) {
-                value = field.get(response);
+            List<?> resList = TypeUtil.safeCast(fieldResponse, List.class);
+            sizes[j] = resList.size();
+            elements.addAll(resList);
+        }
+        return elements;
+    }
+
+    /**
+     * Splits projected elements back into one list per parent, null lists become empty lists
+     */
+    private static List<Object> splitLists(List<Object> projected, int[] sizes) {
+        List<Object> values = new ArrayList<>(sizes.length);
+        int offset = 0;
+        for (int size : sizes) {
+            if (size < 0) {
+                values.add(new ArrayList<>());
+                continue;
             }
-            // otherwise we need to fulfill it with a resolver
-            else {
-                Object fieldResponse = getResponseFromResolver(
-                        Resolver.buildResolverReturnTypeName(field.getType()), 
-                        parent,
-                        extraData
+            values.add(new ArrayList<>(projected.subList(offset, offset + size)));
+            offset += size;
+        }
+        return values;
+    }
+
+    /**
+     * <pre>
+     * Gets the responses from the resolver, through the memo of the request and the
+     * resolver's cache if there are ones.
+     * </pre>
+     */
+    List<?> getResponsesFromResolver(Resolver<?,?,?> resolver, List<Object> parents, RequestScope scope, ResolveContext context) {
+        Object extraData = scope.getExtraData();
+        if (resolver == null || (scope.getMemo() == null && !resolverCaches.containsKey(resolver)))
+            return callResolver(resolver, parents, extraData, context);
+
+        CompletableFuture<List<?>> results = loadResponses(
+            resolver, 
+            parents, 
+            scope, 
+            context,
+            missing -> CompletableFuture.completedFuture(callResolver(resolver, missing, extraData, context))
+        );
+        try {
+            return results.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw e;
+        }
+    }
+
+    /**
+     * Calls the resolver with the parents that miss the request's memo and then the resolver's cache
+     */
+    private CompletableFuture<List<?>> loadResponses(
+        Resolver<?,?,?> resolver, 
+        List<Object> parents, 
+        RequestScope scope, 
+        ResolveContext context,
+        Function<List<Object>, CompletableFuture<List<?>>> call
+    ) {
+        // results depend on the arguments too, eg two pages of the same list, and on the selection if the resolver uses it
+        FieldArguments arguments = context.getArguments();
+        SelectionSet selection = (resolver.usesSelection())? context.getSelection() : null;
+        Function<List<Object>, CompletableFuture<List<?>>> loader = call;
+
+        ResolverCache cache = resolverCaches.get(resolver);
+        if (cache != null) {
+            Function<List<Object>, CompletableFuture<List<?>>> uncached = loader;
+            loader = missing -> cache.resolveAll(missing, scope.getExtraData(), arguments, selection, this::getParentKey, uncached).thenApply(results -> results);
+        }
+
+        ResolverMemo memo = scope.getMemo();
+        if (memo != null) {
+            Function<List<Object>, CompletableFuture<List<?>>> unmemoized = loader;
+            loader = missing -> memo.resolveAll(resolver, arguments, selection, missing, unmemoized).thenApply(results -> results);
+        }
+
+        return loader.apply(parents);
+    }
+
+    private List<?> callResolver(Resolver<?,?,?> resolver, List<Object> parents, Object extraData, ResolveContext context) {
+        if (resolver instanceof BatchResolver<?,?,?> batchResolver) {
+            for (Object parent : parents)
+                checkResolverTypes(resolver, parent, extraData);
+
+            List<?> results = invokeBatchResolver(batchResolver, parents, extraData, context);
+            if (results == null || results.size() != parents.size())
+                throw new PickerException(
+                    "Batch resolver " + resolver.getClass().getName() + " returned " + 
+                    ((results == null)? "null" : results.size() + " results") + " for " + parents.size() + " parents",
+                    null
                 );
-                value = getRequestedFields(field.get(request), fieldResponse, extraData);
+            return results;
+        }
+
+        List<Object> results = new ArrayList<>(parents.size());
+        for (Object parent : parents)
+            results.add(getResponseFromResolver(resolver, parent, extraData, context));
+        return results;
+    }
+
+    /**
+     * getResponsesFromResolver for resolveRequestAsync
+     */
+    private CompletableFuture<List<?>> getResponsesFromResolverAsync(Resolver<?,?,?> resolver, List<Object> parents, RequestScope scope, ResolveContext context) {
+        Object extraData = scope.getExtraData();
+        if (resolver == null)
+            return callResolverAsync(resolver, parents, extraData, context);
+
+        return loadResponses(resolver, parents, scope, context, missing -> callResolverAsync(resolver, missing, extraData, context));
+    }
+
+    /**
+     * <pre>
+     * Calls the resolver for resolveRequestAsync. AsyncResolvers are started for
+     * every parent, other resolvers are run on the resolver executor if there is one.
+     * </pre>
+     */
+    private CompletableFuture<List<?>> callResolverAsync(Resolver<?,?,?> resolver, List<Object> parents, Object extraData, ResolveContext context) {
+        if (resolver instanceof AsyncResolver<?,?,?> asyncResolver) {
+            List<CompletableFuture<?>> futures = new ArrayList<>(parents.size());
+            for (Object parent : parents) {
+                checkResolverTypes(resolver, parent, extraData);
+                CompletableFuture<?> future = invokeAsyncResolver(asyncResolver, parent, extraData, context);
+                futures.add((future == null)? CompletableFuture.completedFuture(null) : future);
             }
 
-            return value;
-        } catch (IllegalArgumentException e) {
-            throw new PickerException("Tried to map bad value to field '" + field.getName() + "' in class '" + parent.getClass().getName() + "'", e);
-        }  catch (IllegalAccessException e) {
-            throw new PickerException("Couldn't access field '" + field.getName() + "' in class '" + parent.getClass().getName() + "'", e);
-        } 
+            return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+                List<Object> results = new ArrayList<>(futures.size());
+                for (CompletableFuture<?> future : futures)
+                    results.add(future.join());
+                return results;
+            });
+        }
+
+        if (resolver != null && resolverExecutor != null)
+            return CompletableFuture.supplyAsync(() -> callResolver(resolver, parents, extraData, context), resolverExecutor);
+        return CompletableFuture.completedFuture(callResolver(resolver, parents, extraData, context));
     }
 
-    private Object getResponseFromResolver(String resolverTypeName, Object parent, Object extraData) {
-        if (!this.resolvers.containsKey(resolverTypeName))
+    private Object getResponseFromResolver(Resolver<?,?,?> resolver, Object parent, Object extraData, ResolveContext context) {
+        if (resolver == null)
             return null;
 
-        Resolver<?,?,?> resolver = this.resolvers.get(resolverTypeName);
+        checkResolverTypes(resolver, parent, extraData);
+
+        return invokeResolver(resolver, parent, extraData, context);
+    }
+
+    /**
+     * Opens the stream of a StreamingResolver for resolveTo
+     */
+    Stream<?> openStream(StreamingResolver<?,?,?> resolver, Object parent, Object extraData, ResolveContext context) {
+        checkResolverTypes(resolver, parent, extraData);
+        return invokeStreamingResolver(resolver, parent, extraData, context);
+    }
 
+    private void checkResolverTypes(Resolver<?,?,?> resolver, Object parent, Object extraData) {
         Class<?> parentType = resolver.getParentType();
         if (parent != null && !parentType.isAssignableFrom(parent.getClass())) 
             throw new PickerException(
                 "Parent for resolver " + resolver.getClass().getName() + 
                 " was expected to be of type " + parentType.getName()
-                + " but was of type " + extraData.getClass().getName(), 
+                + " but was of type " + parent.getClass().getName(), 
                 null
             );
 
@@ -264,19 +1442,54 @@ public class PickBox {
                 + " but was of type " + extraData.getClass().getName(), 
                 null
             );
-
-        return invokeResolver(resolver, parent, extraData);
     }
 
-    private <T, U, E> T invokeResolver(Resolver<T, U, E> resolver, Object parent, Object extraData) {
+    private <T, U, E> T invokeResolver(Resolver<T, U, E> resolver, Object parent, Object extraData, ResolveContext context) {
         return resolver.resolve(
             resolver.getParentType().cast(parent),
-            resolver.getArgType().cast(extraData)
+            resolver.getArgType().cast(extraData),
+            context
+        );
+    }
+
+    private <T, U, E> CompletableFuture<T> invokeAsyncResolver(AsyncResolver<T, U, E> resolver, Object parent, Object extraData, ResolveContext context) {
+        return resolver.resolveAsync(
+            resolver.getParentType().cast(parent),
+            resolver.getArgType().cast(extraData),
+            context
+        );
+    }
+
+    private <T, U, E> Stream<T> invokeStreamingResolver(StreamingResolver<T, U, E> resolver, Object parent, Object extraData, ResolveContext context) {
+        return resolver.stream(
+            resolver.getParentType().cast(parent),
+            resolver.getArgType().cast(extraData),
+            context
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T, U, E> List<T> invokeBatchResolver(BatchResolver<T, U, E> resolver, List<Object> parents, Object extraData, ResolveContext context) {
+        return resolver.resolveBatch(
+            (List<U>) parents,
+            resolver.getArgType().cast(extraData),
+            context
         );
     }
 
 
 
+    /**
+     * <pre>
+     * Builds an object of the class with every field filled with a default value
+     * (nested objects and an example element in each list too), to show clients what
+     * they can request. Each call builds a new object you can change.
+     * 
+     * A class nested in itself (Employee.manager, or through other classes) gets an
+     * object with its fields left as its constructor sets them at that point, so 
+     * self referencing classes don't recurse forever.
+     * </pre>
+     */
     public static <T> T getDefaultObject(Class<T> type) {
         Object result = (TypeUtil.isBasicJavaType(type))? 
             TypeUtil.buildDefaultForJavaClass(type) : 
@@ -288,4 +1501,39 @@ public class PickBox {
         return null;
     }
 
+    /**
+     * <pre>
+     * The default object of the class (see getDefaultObject), built the first time
+     * it's asked for and shared after that. It must not be changed.
+     * </pre>
+     */
+    public static <T> T getCachedDefaultObject(Class<T> type) {
+        Object instance = DefaultObjects.of(type).getInstance();
+        return (type.isInstance(instance))? type.cast(instance) : null;
+    }
+
+    /**
+     * <pre>
+     * The default object of the class as compact UTF-8 json, written once and 
+     * shared after that. Answering an OPTIONS request is then just copying the
+     * bytes into the response:
+     * 
+     *     channel.write(PickBox.getDefaultObjectJson(MyObject.class));
+     * 
+     * or with an OutputStream, writeDefaultObjectJson(MyObject.class, out).
+     * 
+     * </pre>
+     * @return read only buffer of the json
+     */
+    public static ByteBuffer getDefaultObjectJson(Class<?> type) {
+        return ByteBuffer.wrap(DefaultObjects.of(type).getJson()).asReadOnlyBuffer();
+    }
+
+    /**
+     * Writes the json of the class's default object to the stream, see getDefaultObjectJson
+     */
+    public static void writeDefaultObjectJson(Class<?> type, OutputStream out) throws IOException {
+        out.write(DefaultObjects.of(type).getJson());
+    }
+
 }
@@ -1,14 +1,21 @@
 package pick.box;
 
-import java.lang.reflect.Field;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
 import pick.box.exception.PickerException;
+import pick.box.generate.PickableSupport;
+import pick.box.json.JsonWriter;
+import pick.box.plan.FieldKind;
+import pick.box.plan.FieldPlan;
+import pick.box.plan.ProjectionPlan;
 import pick.box.types.TypeUtil;
 
 public class PickerUtil {
@@ -21,147 +28,107 @@ public class PickerUtil {
      * @param object
      * @return
      */
+    @SuppressWarnings("unchecked")
     public static <T> Map<String, Object> mapify(T object) {
 
-        Map<String, Object> mappedResponse = new HashMap<>();
-        
-        Class<?> objectType = object.getClass();
+        ProjectionPlan plan = ProjectionPlan.of(object.getClass());
+        PickableSupport<T> support = (PickableSupport<T>) plan.getSupport();
+        if (support != null)
+            return support.mapify(object);
 
-        Field[] fields = objectType.getFields();
+        Map<String, Object> mappedResponse = new HashMap<>();
 
-        for (Field field : fields) {
+        for (FieldPlan field : plan.getFields()) {
             
-            try {
-                boolean originalAccessibility = field.canAccess(object);
-                field.setAccessible(true);
-
+            Object fieldValue = field.getAccessor().get(object);
+            if (fieldValue != null) {
 
-                if (field.get(object) != null) {
+                Object value = null;
 
-                    Object value = null;
-    
-                    // check if the field is a list
-                    if (List.class.isAssignableFrom(field.getType())) {
-                        List<Object> list = new ArrayList<>();
-
-                        Object fieldResponse = field.get(object);
-
-                        List<?> resList = TypeUtil.safeCast(fieldResponse, List.class);
-                        for (Object o : resList) {
-                            Object val = (TypeUtil.isBasicJavaType(o.getClass()) || o.getClass().isEnum())? o : mapify(o);
-                            list.add(val);
-                        }
-                        value = list;
-                    }
-                    // check if the field is a map
-                    else if (Map.class.isAssignableFrom(field.getType())) {
-                        Map<Object, Object> map = new HashMap<>();
-
-                        Map<?, ?> resMap = TypeUtil.safeCast(field.get(object), Map.class);
-                        for (Entry<?, ?> entry : resMap.entrySet()) {
-                            Object key = entry.getKey();
-                            Object val = entry.getValue();
-                            val = (TypeUtil.isBasicJavaType(val.getClass()) || val.getClass().isEnum())? val : mapify(val);
-                            map.put(key, val);
-                        }
-
-                        value = map;
-                    }
-                    // check if the field is a basic java type or enum
-                    else if (TypeUtil.isBasicJavaType(field.getType()) || field.getType().isEnum()) {
-                        value = field.get(object);
-                    }
-                    // otherwise we need to fulfill it as well
-                    else {
-                        Object fieldResponse = field.get(object);
-                        value = mapify(fieldResponse);
-                    }
-
-
-                    mappedResponse.put(field.getName(), value);
-    
+                // check if the field is a list
+                if (field.getKind() == FieldKind.LIST) {
+                    value = mapifyList(TypeUtil.safeCast(fieldValue, List.class));
                 }
-                field.setAccessible(originalAccessibility);
-                
-            } catch (IllegalArgumentException e) {
-                throw new PickerException("Tried to map bad value to field '" + field.getName() + "' in class '" + objectType.getName() + "'", e);
-            }  catch (IllegalAccessException e) {
-                throw new PickerException("Couldn't access field '" + field.getName() + "' in class '" + objectType.getName() + "'", e);
-            } 
+                // check if the field is a map
+                else if (field.getKind() == FieldKind.MAP) {
+                    value = mapifyMap(TypeUtil.safeCast(fieldValue, Map.class));
+                }
+                // check if the field is a basic java type or enum
+                else if (field.getKind() == FieldKind.BASIC) {
+                    value = fieldValue;
+                }
+                // otherwise we need to fulfill it as well
+                else {
+                    value = mapify(fieldValue);
+                }
+
+
+                mappedResponse.put(field.getName(), value);
+            }
         }
 
         return mappedResponse;
     }
 
-
     /**
-     * Converts a map to a pretty json string
+     * Mapifies the elements of a list that aren't basic java types or enums
      */
-    public static String jsonMap(Map<String, Object> map) {
-        StringBuilder builder = new StringBuilder();
-        builder.append("{\n");
-
-        for (Entry<String, Object> entry : map.entrySet()) {
-
-            if (entry.getValue() instanceof Map) {
-                builder.append("\t\"").append(entry.getKey()).append("\": ");
-                String mapString = jsonMap((Map<String, Object>) entry.getValue());
-                String[] lines = mapString.split("\n");
+    public static List<Object> mapifyList(List<?> resList) {
+        List<Object> list = new ArrayList<>(resList.size());
+        for (Object o : resList) {
+            Object val = (TypeUtil.isBasicJavaType(o.getClass()) || o.getClass().isEnum())? o : mapify(o);
+            list.add(val);
+        }
+        return list;
+    }
 
-                builder.append("\t").append(lines[0]).append("\n");
-                String[] otherLines = Arrays.copyOfRange(lines, 1, lines.length);
-                for (String line : otherLines) {
-                    builder.append("\t").append(line).append("\n");
-                }
+    /**
+     * Mapifies the values of a map that aren't basic java types or enums
+     */
+    public static Map<Object, Object> mapifyMap(Map<?, ?> resMap) {
+        Map<Object, Object> map = new HashMap<>();
+        for (Entry<?, ?> entry : resMap.entrySet()) {
+            Object key = entry.getKey();
+            Object val = entry.getValue();
+            val = (TypeUtil.isBasicJavaType(val.getClass()) || val.getClass().isEnum())? val : mapify(val);
+            map.put(key, val);
+        }
+        return map;
+    }
 
-            } 
-            else if (entry.getValue() instanceof List) {
-                builder.append("\t\"").append(entry.getKey()).append("\": ");
-                List<?> list = (List<?>) entry.getValue();
-                builder.append("[\n");
-                for (Object o : list) {
-                    if (o instanceof Map) {
-                        String mapString = jsonMap((Map<String, Object>) o);
-                        String[] lines = mapString.split("\n");
-
-                        builder.append("\t\t").append(lines[0]).append("\n");
-                        String[] otherLines = Arrays.copyOfRange(lines, 1, lines.length);
-                        for (String line : otherLines) {
-                            builder.append("\t\t").append(line).append("\n");
-                        }
-                        builder.deleteCharAt(builder.length() - 1);
-                        builder.append(",\n");
-                    } 
-                    else if (o instanceof List) {
-                        throw new PickerException("Double nested lists aren't supported for jsonMap conversion. Map key: " + entry.getKey(), null);
-                    }
-                    else if (o instanceof String || o.getClass().isEnum()) {
-                        builder.append("\"").append(o).append("\"").append(",\n");
-                    }
-                    else {
-                        builder.append(entry.getValue()).append(",\n");
-                    }
-                }
-                builder.deleteCharAt(builder.length() - 2);
-                builder.append("\t],\n");	
-            }
-            else {
-                builder.append("\t\"").append(entry.getKey()).append("\": ");
-                if (entry.getValue() instanceof String || entry.getValue().getClass().isEnum()) {
-                    builder.append("\"").append(entry.getValue()).append("\"").append(",\n");
-                }
-                else {
-                    builder.append(entry.getValue()).append(",\n");
-                }
-            }
 
+    /**
+     * Converts a map to a pretty json string
+     */
+    public static String jsonMap(Map<String, Object> map) {
+        StringWriter writer = new StringWriter();
+        try {
+            new JsonWriter(writer, true).writeValue(map).flush();
+        } catch (IOException e) {
+            throw new PickerException("Couldn't write json", e);
         }
+        return writer.toString();
+    }
 
-        builder.deleteCharAt(builder.length() - 2);
-        builder.append("}");
+    /**
+     * <pre>
+     * Writes an object (a response, the output of mapify, a list...) as json to
+     * the writer without building the json in memory. Null fields are left out. 
+     * The writer is flushed but not closed.
+     * </pre>
+     * @param value object to write
+     * @param writer where the json goes
+     * @param pretty true for one field per line, false for compact json
+     */
+    public static void writeJson(Object value, Writer writer, boolean pretty) throws IOException {
+        new JsonWriter(writer, pretty).writeValue(value).flush();
+    }
 
-        return builder.toString();
+    /**
+     * Writes an object as UTF-8 json to the stream, see writeJson(Object, Writer, boolean)
+     */
+    public static void writeJson(Object value, OutputStream out, boolean pretty) throws IOException {
+        new JsonWriter(out, pretty).writeValue(value).flush();
     }
-	
 
 }
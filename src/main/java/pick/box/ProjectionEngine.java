@@ -0,0 +1,21 @@
+package pick.box;
+
+/**
+ * How PickBox copies requested fields from resolver output into the response.
+ * Set with {@link PickBox#setProjectionEngine(ProjectionEngine)}.
+ */
+public enum ProjectionEngine {
+
+    /**
+     * Copies fields one at a time through the FieldAccessors of the projection plan (the default)
+     */
+    ACCESSOR,
+
+    /**
+     * Generates a hidden class per request class and selection shape that copies the
+     * selected basic fields with straight-line code. Falls back to ACCESSOR for classes
+     * a projector can't be generated for.
+     */
+    GENERATED
+
+}
@@ -0,0 +1,141 @@
+package pick.box;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+
+import pick.box.exception.PickerException;
+
+/**
+ * <pre>
+ * Reads a Flow.Publisher as an Iterator, see StreamingResolver.fromPublisher.
+ * Elements are requested from the publisher half a buffer at a time as they're
+ * read, so no more than bufferSize are ever waiting. A publisher sending more
+ * than it was asked for fails the iterator (and is cancelled) rather than having
+ * elements dropped.
+ * </pre>
+ */
+class PublisherIterator<T> implements Iterator<T>, Flow.Subscriber<T> {
+
+    private static final Object END = new Object();
+
+    private record Failure(Throwable error) {}
+
+
+    private final int bufferSize;
+    private final int refill;
+    // room for every requested element plus the end or failure signal
+    private final BlockingQueue<Object> queue;
+    private volatile Flow.Subscription subscription;
+    private volatile boolean cancelled;
+    // set if the publisher sent more than was requested
+    private volatile PickerException overflow;
+
+    private Object next;
+    private int consumed;
+
+
+    PublisherIterator(int bufferSize) {
+        if (bufferSize < 1)
+            throw new IllegalArgumentException("Buffer size must be at least 1 but was " + bufferSize);
+        this.bufferSize = bufferSize;
+        this.refill = Math.max(1, bufferSize / 2);
+        this.queue = new ArrayBlockingQueue<>(bufferSize + 1);
+    }
+
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        if (cancelled)
+            subscription.cancel();
+        else
+            subscription.request(bufferSize);
+    }
+
+    @Override
+    public void onNext(T item) {
+        signal(item);
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        signal(new Failure(error));
+    }
+
+    @Override
+    public void onComplete() {
+        signal(END);
+    }
+
+    /**
+     * <pre>
+     * Queues an element or the end, the queue only fills up if the publisher sent
+     * more than was requested. Then the iterator fails and nothing else is read.
+     * </pre>
+     */
+    private void signal(Object signal) {
+        if (overflow != null || queue.offer(signal))
+            return;
+
+        overflow = new PickerException(
+            "Publisher sent more elements than the " + bufferSize + " requested ahead, it doesn't follow Flow's backpressure", 
+            null
+        );
+        Flow.Subscription current = subscription;
+        if (current != null)
+            current.cancel();
+    }
+
+
+    @Override
+    public boolean hasNext() {
+        if (overflow != null)
+            throw overflow;
+
+        if (next == null) {
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PickerException("Interrupted waiting on a publisher", e);
+            }
+        }
+
+        if (next instanceof Failure failure) {
+            Throwable error = failure.error();
+            if (error instanceof RuntimeException runtimeException)
+                throw runtimeException;
+            if (error instanceof Error fatal)
+                throw fatal;
+            throw new PickerException("Publisher failed: " + error.getMessage(), (error instanceof Exception exception)? exception : null);
+        }
+        return next != END;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        T item = (T) next;
+        next = null;
+
+        if (++consumed == refill) {
+            subscription.request(consumed);
+            consumed = 0;
+        }
+        return item;
+    }
+
+    void cancel() {
+        cancelled = true;
+        Flow.Subscription current = subscription;
+        if (current != null)
+            current.cancel();
+    }
+
+}
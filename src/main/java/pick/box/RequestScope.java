@@ -0,0 +1,60 @@
+package pick.box;
+
+import pick.box.plan.PlanNode;
+import pick.box.query.QueryArguments;
+import pick.box.query.SelectionSet;
+
+/**
+ * State of one request while PickBox is resolving it
+ */
+class RequestScope {
+
+    private final Object extraData;
+    private final ResolverMemo memo;
+    private final QueryArguments arguments;
+
+
+    RequestScope(Object extraData, ResolverMemo memo, QueryArguments arguments) {
+        this.extraData = extraData;
+        this.memo = memo;
+        this.arguments = (arguments == null || arguments.isEmpty())? null : arguments;
+    }
+
+
+    Object getExtraData() {
+        return extraData;
+    }
+
+    /**
+     * Memo of the resolver results of this request, null if memoizing is off
+     */
+    ResolverMemo getMemo() {
+        return memo;
+    }
+
+    /**
+     * True if the request gave a field of a node a page or filter
+     */
+    boolean hasArguments(PlanNode node, int position) {
+        return arguments != null && arguments.get(node.getFieldPath(position)) != null;
+    }
+
+    /**
+     * Context for resolving a field of a node
+     */
+    ResolveContext contextFor(PlanNode node, int position) {
+        return contextFor(node.getFieldPath(position), node.getSelection(position));
+    }
+
+    /**
+     * Context for resolving the root object of a request
+     */
+    ResolveContext contextFor(PlanNode root) {
+        return contextFor(root.getPath(), root.getSelection());
+    }
+
+    private ResolveContext contextFor(String fieldPath, SelectionSet selection) {
+        return new ResolveContext(fieldPath, (arguments == null)? null : arguments.get(fieldPath), selection);
+    }
+
+}
@@ -0,0 +1,72 @@
+package pick.box;
+
+import pick.box.query.FieldArguments;
+import pick.box.query.Filter;
+import pick.box.query.Page;
+import pick.box.query.SelectionSet;
+
+/**
+ * <pre>
+ * What a resolver is being called for, given to Resolver.resolve(parent, extraData, context):
+ * the path of the field in the response, the arguments the request gave it and the
+ * fields requested on what the resolver returns.
+ * </pre>
+ */
+public class ResolveContext {
+
+    private final String fieldPath;
+    private final FieldArguments arguments;
+    private final SelectionSet selection;
+
+
+    public ResolveContext(String fieldPath, FieldArguments arguments) {
+        this(fieldPath, arguments, SelectionSet.EMPTY);
+    }
+
+    public ResolveContext(String fieldPath, FieldArguments arguments, SelectionSet selection) {
+        this.fieldPath = fieldPath;
+        this.arguments = arguments;
+        this.selection = (selection == null)? SelectionSet.EMPTY : selection;
+    }
+
+
+    /**
+     * Path of the field being resolved, eg 'University.classes.classDays'
+     */
+    public String getFieldPath() {
+        return fieldPath;
+    }
+
+    /**
+     * Arguments given to the field, null if there are none
+     */
+    public FieldArguments getArguments() {
+        return arguments;
+    }
+
+    /**
+     * Page the request wants of the list being resolved, null for the whole list
+     */
+    public Page getPage() {
+        return (arguments == null)? null : arguments.getPage();
+    }
+
+    /**
+     * Filter the request gave the list being resolved, null for every element
+     */
+    public Filter getFilter() {
+        return (arguments == null)? null : arguments.getFilter();
+    }
+
+    /**
+     * <pre>
+     * Fields requested on the object (or list elements) being resolved, with their
+     * nested selections. A resolver that returns less than the whole object based
+     * on it should return true from Resolver.usesSelection.
+     * </pre>
+     */
+    public SelectionSet getSelection() {
+        return selection;
+    }
+
+}
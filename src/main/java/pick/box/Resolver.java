@@ -3,8 +3,12 @@ package pick.box;
 import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
 import java.util.Map;
 
+import pick.box.exception.PickerException;
+import pick.box.types.TypeKey;
+
 /**
  * <pre>
  * This interface is what you need to implement in order for PickPoint to work it's magic.
@@ -41,28 +45,183 @@ public abstract class Resolver<T, P, E> {
     public abstract T resolve(P parent, E extraData);
 
 
+    /**
+     * <pre>
+     * The method PickBox actually calls, with the context of the field being resolved
+     * (its path and arguments, like the page of a list). By default this just calls
+     * resolve(parent, extraData). Override it to use the context.
+     * </pre>
+     * @param parent the parent of this object if applicable
+     * @param extraData some object you provide to PickPoint, given to all resolvers
+     * @param context the field being resolved
+     * @return
+     */
+    public T resolve(P parent, E extraData, ResolveContext context) {
+        return resolve(parent, extraData);
+    }
+
+    /**
+     * <pre>
+     * Return true if this resolver applies the page in the ResolveContext itself 
+     * (skipping the offset or starting after the cursor). PickBox then only makes
+     * sure no more than the limit are returned. Otherwise PickBox pages the full list
+     * the resolver returns.
+     * </pre>
+     */
+    public boolean appliesPaging() {
+        return false;
+    }
+
+    /**
+     * <pre>
+     * Return true if this resolver only returns elements meeting the filter in the
+     * ResolveContext (eg by putting the conditions in its query). Otherwise PickBox
+     * removes the elements that don't match from the list the resolver returns.
+     *
+     * A resolver that applies paging has to apply the filter too, since PickBox 
+     * can't filter a list that's already been paged. Requests giving a filter to a
+     * resolver that pages but doesn't filter throw a PickerException.
+     * </pre>
+     */
+    public boolean appliesFilter() {
+        return false;
+    }
+
+    /**
+     * <pre>
+     * Return true if what this resolver returns depends on the SelectionSet in the
+     * ResolveContext (eg it only selects the requested columns). Memoized and cached
+     * results are then only reused for requests selecting the same fields.
+     * </pre>
+     */
+    public boolean usesSelection() {
+        return false;
+    }
+
+    /**
+     * <pre>
+     * Return true if the objects this resolver returns are built fresh for each call
+     * and not kept or shared anywhere else. PickBox then uses them as the response,
+     * nulling out the fields that weren't requested, instead of copying the requested
+     * fields into new objects. See PickBox.setProjectInPlace.
+     * </pre>
+     */
+    public boolean returnsFreshObjects() {
+        return false;
+    }
+
+
+
+
+    /**
+     * <pre>
+     * The type arguments of a resolver class, read from its generic superclass once
+     * (the first time they're needed) instead of on every call.
+     * </pre>
+     */
+    private static final class Signature {
+
+        private final Class<?> parentType;
+        private final Class<?> argType;
+        private final TypeKey returnType;
+        private final String returnTypeName;
+
+        Signature(Class<?> parentType, Class<?> argType, TypeKey returnType, String returnTypeName) {
+            this.parentType = parentType;
+            this.argType = argType;
+            this.returnType = returnType;
+            this.returnTypeName = returnTypeName;
+        }
+    }
+
+    // the fields are final so it's safe to share without locking, at worst it's worked out twice
+    private Signature signature;
+
+
+    private Signature signature() {
+        Signature signature = this.signature;
+        if (signature == null) {
+            Type[] arguments = typeArguments(getClass());
+            if (arguments[0] instanceof TypeVariable<?>)
+                throw new PickerException("The return type of resolver " + getClass().getName() + " has to be given, not " + arguments[0], null);
+            signature = new Signature(
+                typeArgumentClass(arguments[1], "parent"),
+                typeArgumentClass(arguments[2], "extra data"),
+                returnType(arguments[0]),
+                returnTypeName(arguments[0])
+            );
+            this.signature = signature;
+        }
+        return signature;
+    }
+
+    /**
+     * <pre>
+     * The type arguments of Resolver (or AsyncResolver, BatchResolver etc, which 
+     * all keep the same order), from the first generic superclass giving them. So
+     * resolvers can extend a non generic base resolver.
+     * </pre>
+     */
+    private static Type[] typeArguments(Class<?> resolverClass) {
+        for (Class<?> type = resolverClass; type != Resolver.class; type = type.getSuperclass()) {
+            if (type.getGenericSuperclass() instanceof ParameterizedType superclassType
+                && superclassType.getRawType() instanceof Class<?> rawType
+                && rawType.getPackage() == Resolver.class.getPackage()) {
+
+                Type[] arguments = superclassType.getActualTypeArguments();
+                if (arguments.length == 3)
+                    return arguments;
+            }
+        }
+        throw new PickerException(
+            "Resolver " + resolverClass.getName() + " has to give its type arguments, eg extends Resolver<Order, Customer, String>", 
+            null
+        );
+    }
+
+    private Class<?> typeArgumentClass(Type argument, String name) {
+        if (argument instanceof Class<?> type)
+            return type;
+        if (argument instanceof ParameterizedType parameterizedType)
+            return (Class<?>) parameterizedType.getRawType();
+        throw new PickerException(
+            "The " + name + " type of resolver " + getClass().getName() + " has to be a class, not " + argument.getTypeName(), 
+            null
+        );
+    }
+
+    /**
+     * The type this resolver provides given its first type argument
+     */
+    TypeKey returnType(Type typeArgument) {
+        return TypeKey.of(typeArgument);
+    }
+
+    String returnTypeName(Type typeArgument) {
+        return buildReturnTypeNameFromType(typeArgument);
+    }
 
 
     @SuppressWarnings("unchecked")
     public Class<E> getArgType() {
-        ParameterizedType superclassType = (ParameterizedType) this.getClass().getGenericSuperclass();
-        return (Class<E>) superclassType.getActualTypeArguments()[2];
+        return (Class<E>) signature().argType;
     }
 
 
     @SuppressWarnings("unchecked")
     public Class<P> getParentType() {
-        ParameterizedType superclassType = (ParameterizedType) this.getClass().getGenericSuperclass();
-        return (Class<P>) superclassType.getActualTypeArguments()[1];
+        return (Class<P>) signature().parentType;
     }
 
-
+    /**
+     * The type of the fields this resolver fills, PickBox indexes its resolvers by it
+     */
+    public TypeKey getReturnType() {
+        return signature().returnType;
+    }
 
     public String getReturnTypeName() {
-        ParameterizedType superclassType = (ParameterizedType) this.getClass().getGenericSuperclass();
-        Type returnType = superclassType.getActualTypeArguments()[0];
-
-        return buildReturnTypeNameFromType(returnType);
+        return signature().returnTypeName;
     }
 
 
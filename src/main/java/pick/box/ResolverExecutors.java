@@ -0,0 +1,60 @@
+package pick.box;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <pre>
+ * Executors for running sibling resolver fields concurrently, see
+ * PickBox.setResolverExecutor.
+ *
+ * Resolver tasks block while they wait on their own nested resolvers, so the
+ * executor shouldn't have a small fixed number of threads.
+ * </pre>
+ */
+public class ResolverExecutors {
+
+    private static volatile Executor defaultExecutor;
+
+
+    private ResolverExecutors() {}
+
+
+    /**
+     * <pre>
+     * A shared executor starting a virtual thread per task on JDK 21+, or an unbounded
+     * pool of daemon threads on older JDKs.
+     * </pre>
+     */
+    public static Executor defaultExecutor() {
+        Executor executor = defaultExecutor;
+        if (executor == null) {
+            synchronized (ResolverExecutors.class) {
+                executor = defaultExecutor;
+                if (executor == null) {
+                    executor = createDefaultExecutor();
+                    defaultExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+
+    private static Executor createDefaultExecutor() {
+        try {
+            // Executors.newVirtualThreadPerTaskExecutor() on JDK 21+, looked up so the library still builds for 17
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "pick-box-resolver-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+}
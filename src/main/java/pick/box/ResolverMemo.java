@@ -0,0 +1,114 @@
+package pick.box;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import pick.box.cache.CacheStats;
+import pick.box.query.FieldArguments;
+import pick.box.query.SelectionSet;
+
+/**
+ * <pre>
+ * Results of the resolvers called while resolving one request, by resolver, field
+ * arguments and parent key. The unprojected result is kept, so a parent that hits the memo
+ * still gets its own copy of the object.
+ *
+ * Results are kept as futures so a call that's still running (in another thread,
+ * or an AsyncResolver) is shared instead of being made again.
+ * </pre>
+ */
+class ResolverMemo {
+
+    private record Key(Resolver<?, ?, ?> resolver, FieldArguments arguments, SelectionSet selection, Class<?> parentType, Object parentKey) {}
+
+    private static final Object NO_PARENT = new Object();
+
+
+    private final Map<Key, CompletableFuture<Object>> results = new ConcurrentHashMap<>();
+    private final Function<Object, Object> keyExtractor;
+    private final CacheStats stats;
+
+
+    /**
+     * @param keyExtractor gets the key of a non null parent, null to not memoize the call
+     * @param stats where hits and misses are counted
+     */
+    ResolverMemo(Function<Object, Object> keyExtractor, CacheStats stats) {
+        this.keyExtractor = keyExtractor;
+        this.stats = stats;
+    }
+
+
+    /**
+     * <pre>
+     * Gets the resolver's result for each parent. Parents with a result in the memo
+     * (or an equal parent earlier in the list) reuse it, the rest are given to the
+     * loader together.
+     * </pre>
+     * @param resolver the resolver being called
+     * @param arguments arguments of the field being resolved (can be null)
+     * @param selection selection the resolver's results depend on (null if they don't)
+     * @param parents parents needing a result
+     * @param loader calls the resolver for a list of parents, returning one result per parent
+     * @return future of one result per parent
+     */
+    CompletableFuture<List<Object>> resolveAll(Resolver<?, ?, ?> resolver, FieldArguments arguments, SelectionSet selection, List<Object> parents, Function<List<Object>, CompletableFuture<List<?>>> loader) {
+        List<CompletableFuture<Object>> futures = new ArrayList<>(parents.size());
+        List<Object> missing = new ArrayList<>();
+        List<CompletableFuture<Object>> loading = new ArrayList<>();
+
+        for (Object parent : parents) {
+            Object parentKey = (parent == null)? NO_PARENT : keyExtractor.apply(parent);
+            CompletableFuture<Object> future = new CompletableFuture<>();
+
+            if (parentKey != null) {
+                Key key = new Key(resolver, arguments, selection, (parent == null)? null : parent.getClass(), parentKey);
+                CompletableFuture<Object> existing = results.putIfAbsent(key, future);
+                if (existing != null) {
+                    stats.recordHit();
+                    futures.add(existing);
+                    continue;
+                }
+                stats.recordMiss();
+            }
+
+            missing.add(parent);
+            loading.add(future);
+            futures.add(future);
+        }
+
+        if (!missing.isEmpty()) {
+            CompletableFuture<List<?>> loaded;
+            try {
+                loaded = loader.apply(missing);
+            } catch (RuntimeException e) {
+                loaded = CompletableFuture.failedFuture(e);
+            }
+
+            loaded.whenComplete((values, loadFailure) -> {
+                Throwable failure = (loadFailure == null && (values == null || values.size() != loading.size()))?
+                    new IllegalStateException("Resolver returned " + ((values == null)? "null" : values.size() + " results") + " for " + loading.size() + " parents") :
+                    loadFailure;
+
+                for (int i = 0; i < loading.size(); i++) {
+                    if (failure != null)
+                        loading.get(i).completeExceptionally(failure);
+                    else
+                        loading.get(i).complete(values.get(i));
+                }
+            });
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            List<Object> values = new ArrayList<>(futures.size());
+            for (CompletableFuture<Object> future : futures)
+                values.add(future.join());
+            return values;
+        });
+    }
+
+}
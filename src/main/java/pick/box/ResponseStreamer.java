@@ -0,0 +1,275 @@
+package pick.box;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import pick.box.access.FieldAccessor;
+import pick.box.exception.PickerException;
+import pick.box.json.JsonSink;
+import pick.box.plan.FieldKind;
+import pick.box.plan.FieldPlan;
+import pick.box.plan.PlanNode;
+import pick.box.query.Filter;
+import pick.box.query.Page;
+
+/**
+ * <pre>
+ * Does PickBox.resolveTo. The resolvers are called a level at a time like for
+ * resolveRequest (so batch resolvers, the memo and resolver caches all work), but
+ * only the objects the resolvers return are kept. Nothing is projected; once every
+ * level is resolved the requested fields are read straight from those objects and
+ * sent to the sink.
+ *
+ * Lists from a StreamingResolver aren't resolved with the rest of their level,
+ * they're read a chunk at a time while the response is being written.
+ *
+ * Resolvers are given the object their parent's resolver returned as the parent,
+ * rather than a projected copy.
+ * </pre>
+ */
+class ResponseStreamer {
+
+    /**
+     * The objects at one level of the response and what was resolved for their fields
+     */
+    private static class Level {
+
+        private final PlanNode node;
+        private final List<?> responses;
+        private final ResolvedField[] fields;
+
+        Level(PlanNode node, List<?> responses, ResolvedField[] fields) {
+            this.node = node;
+            this.responses = responses;
+            this.fields = fields;
+        }
+    }
+
+    /**
+     * A field resolved for the responses of a level that didn't provide it
+     */
+    private static class ResolvedField {
+
+        // per response, the index of its resolved value (-1 if the response provided the field)
+        private final int[] slots;
+        // lists, per resolved value, where its elements start in the child level and how many (-1 for a null list)
+        private int[] offsets;
+        private int[] sizes;
+        private Level child;
+        // the parents of a list from a StreamingResolver, by slot
+        private List<Object> streamedParents;
+
+        ResolvedField(int[] slots) {
+            this.slots = slots;
+        }
+    }
+
+
+    private final PickBox pickBox;
+    private final RequestScope scope;
+    private final JsonSink sink;
+
+
+    ResponseStreamer(PickBox pickBox, RequestScope scope, JsonSink sink) {
+        this.pickBox = pickBox;
+        this.scope = scope;
+        this.sink = sink;
+    }
+
+
+    /**
+     * Resolves the rest of the response under the root object, then writes it to the sink
+     */
+    void stream(PlanNode root, Object response) throws IOException {
+        Level level = resolve(root, Collections.singletonList(response));
+        write(level, 0);
+    }
+
+
+    private Level resolve(PlanNode node, List<?> responses) {
+        if (node == PlanNode.VALUE)
+            return new Level(node, responses, null);
+
+        FieldPlan[] fields = node.getFields();
+        ResolvedField[] resolved = new ResolvedField[fields.length];
+
+        for (int i = 0; i < fields.length; i++) {
+            FieldPlan field = fields[i];
+            if (field.getKind() == FieldKind.BASIC)
+                continue;
+
+            FieldAccessor accessor = field.getAccessor();
+            int[] slots = new int[responses.size()];
+            Arrays.fill(slots, -1);
+            List<Object> parents = new ArrayList<>();
+            for (int j = 0; j < responses.size(); j++) {
+                Object response = responses.get(j);
+                if (response != null && accessor.isNull(response)) {
+                    slots[j] = parents.size();
+                    parents.add(response);
+                }
+            }
+            if (parents.isEmpty())
+                continue;
+
+            ResolvedField resolvedField = new ResolvedField(slots);
+            resolved[i] = resolvedField;
+
+            // a map the response didn't provide is written empty
+            if (field.getKind() == FieldKind.MAP)
+                continue;
+
+            PlanNode child = node.getChild(i);
+            if (field.getKind() == FieldKind.LIST && child == null)
+                throw new PickerException("List for field " + field.getName() + " was empty so fulfillment couldn't be completed.", null);
+
+            // streamed while writing
+            if (node.getResolver(i) instanceof StreamingResolver) {
+                resolvedField.streamedParents = parents;
+                continue;
+            }
+
+            Resolver<?, ?, ?> resolver = node.getResolver(i);
+            ResolveContext context = scope.contextFor(node, i);
+            List<?> fieldResponses = pickBox.getResponsesFromResolver(resolver, parents, scope, context);
+
+            if (field.getKind() == FieldKind.LIST) {
+                int[] sizes = new int[parents.size()];
+                List<Object> elements = PickBox.flattenLists(PickBox.applyArguments(fieldResponses, resolver, context), sizes);
+
+                int[] offsets = new int[sizes.length];
+                int offset = 0;
+                for (int k = 0; k < sizes.length; k++) {
+                    offsets[k] = offset;
+                    offset += Math.max(sizes[k], 0);
+                }
+
+                resolvedField.sizes = sizes;
+                resolvedField.offsets = offsets;
+                resolvedField.child = resolve(child, elements);
+            }
+            else {
+                resolvedField.child = resolve(child, fieldResponses);
+            }
+        }
+
+        return new Level(node, responses, resolved);
+    }
+
+
+    private void write(Level level, int index) throws IOException {
+        PlanNode node = level.node;
+        Object response = level.responses.get(index);
+
+        if (node == PlanNode.VALUE) {
+            sink.writeValue(response);
+            return;
+        }
+
+        sink.beginObject();
+
+        // a null response is an empty object, only selected primitive fields have values
+        if (response == null) {
+            Object defaults = node.getPlan().getDefaultInstance();
+            for (FieldPlan field : node.getFields()) {
+                if (field.isPrimitive())
+                    sink.name(field.getName()).writeValue(field.getAccessor().get(defaults));
+            }
+            sink.endObject();
+            return;
+        }
+
+        FieldPlan[] fields = node.getFields();
+        for (int i = 0; i < fields.length; i++) {
+            FieldPlan field = fields[i];
+            ResolvedField resolved = level.fields[i];
+            int slot = (resolved == null)? -1 : resolved.slots[index];
+
+            // the response provided the field, written as is (filtered and paged if it's a list the request gave arguments)
+            if (slot < 0) {
+                Object value = field.getAccessor().get(response);
+                if (value != null && field.getKind() == FieldKind.LIST && scope.hasArguments(node, i))
+                    value = PickBox.applySuppliedArguments(value, scope.contextFor(node, i));
+                if (value != null)
+                    sink.name(field.getName()).writeValue(value);
+                continue;
+            }
+
+            sink.name(field.getName());
+            if (field.getKind() == FieldKind.MAP) {
+                sink.beginObject().endObject();
+            }
+            else if (resolved.streamedParents != null) {
+                writeStream(node, i, resolved.streamedParents.get(slot));
+            }
+            else if (field.getKind() == FieldKind.LIST) {
+                sink.beginArray();
+                int offset = resolved.offsets[slot];
+                for (int e = 0; e < resolved.sizes[slot]; e++)
+                    write(resolved.child, offset + e);
+                sink.endArray();
+            }
+            else {
+                write(resolved.child, slot);
+            }
+        }
+
+        sink.endObject();
+    }
+
+
+    /**
+     * <pre>
+     * Writes the list from a StreamingResolver, resolving and writing a chunk of
+     * elements at a time.
+     * </pre>
+     */
+    private void writeStream(PlanNode node, int position, Object parent) throws IOException {
+        StreamingResolver<?, ?, ?> resolver = (StreamingResolver<?, ?, ?>) node.getResolver(position);
+        PlanNode child = node.getChild(position);
+        int chunkSize = Math.max(1, resolver.getChunkSize());
+
+        ResolveContext context = scope.contextFor(node, position);
+        PickBox.checkArguments(resolver, context);
+        Page page = context.getPage();
+        Filter filter = (resolver.appliesFilter())? null : context.getFilter();
+
+        sink.beginArray();
+        Stream<?> stream = pickBox.openStream(resolver, parent, scope.getExtraData(), context);
+        if (stream != null) {
+            if (filter != null)
+                stream = stream.filter(filter::test);
+            if (page != null && !resolver.appliesPaging())
+                stream = stream.skip(page.getOffset());
+            if (page != null && page.getLimit() != Page.NO_LIMIT)
+                stream = stream.limit(page.getLimit());
+
+            try (Stream<?> paged = stream) {
+                Iterator<?> elements = paged.iterator();
+                List<Object> chunk = new ArrayList<>(chunkSize);
+                while (elements.hasNext()) {
+                    chunk.add(elements.next());
+                    if (chunk.size() == chunkSize) {
+                        writeChunk(child, chunk);
+                        chunk = new ArrayList<>(chunkSize);
+                    }
+                }
+                if (!chunk.isEmpty())
+                    writeChunk(child, chunk);
+            }
+        }
+        sink.endArray();
+    }
+
+    private void writeChunk(PlanNode node, List<Object> elements) throws IOException {
+        Level level = resolve(node, elements);
+        for (int e = 0; e < elements.size(); e++)
+            write(level, e);
+    }
+
+}
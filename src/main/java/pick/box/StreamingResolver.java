@@ -0,0 +1,125 @@
+package pick.box;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Flow;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import pick.box.types.TypeKey;
+
+/**
+ * <pre>
+ * A resolver for list fields too big to hold in memory, like exports returning
+ * hundreds of thousands of rows. Instead of a List it returns a Stream of the
+ * elements.
+ *
+ * With PickBox.resolveTo the elements are pulled from the stream a chunk at a time,
+ * their nested fields resolved and written to the sink, so only one chunk is in
+ * memory at once. Pulling is what gives backpressure: if the sink is slow the stream
+ * isn't read any faster than it can write. The stream is closed once it's done, so 
+ * database cursors etc can be released with Stream.onClose.
+ *
+ * A Flow.Publisher can be turned into a stream with fromPublisher.
+ *
+ *     public class OrderExportResolver extends StreamingResolver{@literal <}Order, Customer, String> {
+ *
+ *         public Stream{@literal <}Order> stream(Customer parent, String extraData) {
+ *             return orderRepository.streamByCustomer(parent.id);
+ *         }
+ *     }
+ *
+ * This resolves fields of type List{@literal <}T>. With resolveRequest (or resolveRequestAsync)
+ * the whole stream is collected into a list.
+ * </pre>
+ */
+public abstract class StreamingResolver<T, P, E> extends Resolver<List<T>, P, E> {
+
+    public static final int DEFAULT_CHUNK_SIZE = 256;
+
+
+    /**
+     * Opens a stream of the elements of the list, see Resolver.resolve
+     *
+     * @param parent the parent of the list
+     * @param extraData some object you provide to PickBox, given to all resolvers
+     * @return stream of the elements (null for a null list)
+     */
+    public abstract Stream<T> stream(P parent, E extraData);
+
+    /**
+     * Opens the stream with the context of the field, by default calls stream(parent, extraData)
+     */
+    public Stream<T> stream(P parent, E extraData, ResolveContext context) {
+        return stream(parent, extraData);
+    }
+
+
+    /**
+     * <pre>
+     * How many elements are pulled from the stream at a time. Nested fields are
+     * resolved for a whole chunk at once, so batch resolvers below this list are
+     * called once per chunk. Default 256.
+     * </pre>
+     */
+    public int getChunkSize() {
+        return DEFAULT_CHUNK_SIZE;
+    }
+
+
+    /**
+     * Collects the whole stream into a list
+     */
+    @Override
+    public List<T> resolve(P parent, E extraData) {
+        return collect(stream(parent, extraData));
+    }
+
+    @Override
+    public List<T> resolve(P parent, E extraData, ResolveContext context) {
+        return collect(stream(parent, extraData, context));
+    }
+
+    private static <T> List<T> collect(Stream<T> stream) {
+        if (stream == null)
+            return null;
+        try (stream) {
+            return stream.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Resolves List{@literal <}T>, not T
+     */
+    @Override
+    TypeKey returnType(Type elementType) {
+        return TypeKey.listOf(TypeKey.of(elementType));
+    }
+
+    @Override
+    String returnTypeName(Type elementType) {
+        return List.class + " " + elementType.getTypeName();
+    }
+
+
+    /**
+     * <pre>
+     * A stream reading from a publisher. At most bufferSize elements are requested
+     * from the publisher that haven't been read from the stream yet, and closing the
+     * stream cancels the subscription. Reading the stream blocks until the publisher
+     * sends the next element.
+     * </pre>
+     * @param publisher publisher of the elements
+     * @param bufferSize most elements held waiting to be read
+     */
+    public static <T> Stream<T> fromPublisher(Flow.Publisher<? extends T> publisher, int bufferSize) {
+        PublisherIterator<T> iterator = new PublisherIterator<>(bufferSize);
+        publisher.subscribe(iterator);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+            .onClose(iterator::cancel);
+    }
+
+}
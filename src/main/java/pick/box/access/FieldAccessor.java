@@ -0,0 +1,34 @@
+package pick.box.access;
+
+/**
+ * <pre>
+ * Reads and writes one field of an object. PickBox and PickerUtil go through
+ * these instead of java.lang.reflect.Field so the access checks and lookups
+ * are done once, when the accessor is made.
+ *
+ * Implementations throw a PickerException if the field can't be read or written.
+ * </pre>
+ */
+public interface FieldAccessor {
+
+    /**
+     * Reads the field, boxing primitive values
+     */
+    Object get(Object target);
+
+    /**
+     * Writes the field, unboxing for primitive fields
+     */
+    void set(Object target, Object value);
+
+    /**
+     * Copies the field from one object to another without boxing primitive values
+     */
+    void copy(Object from, Object to);
+
+    /**
+     * True if the field is null on the target. Always false for primitive fields.
+     */
+    boolean isNull(Object target);
+
+}
@@ -0,0 +1,13 @@
+package pick.box.access;
+
+import java.lang.reflect.Field;
+
+/**
+ * Makes the FieldAccessor used for a field. See {@link FieldAccessors#setFactory(FieldAccessorFactory)}
+ */
+@FunctionalInterface
+public interface FieldAccessorFactory {
+
+    FieldAccessor create(Field field);
+
+}
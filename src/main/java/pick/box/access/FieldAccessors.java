@@ -0,0 +1,33 @@
+package pick.box.access;
+
+import java.lang.reflect.Field;
+
+/**
+ * <pre>
+ * Holds the FieldAccessorFactory used when PickBox builds its projection plans.
+ *
+ * By default accessors are built on MethodHandles. The factory should be set at
+ * startup, plans that were already built keep the accessors they were made with.
+ * </pre>
+ */
+public class FieldAccessors {
+
+    private static volatile FieldAccessorFactory factory = new MethodHandleAccessorFactory();
+
+
+    private FieldAccessors() {}
+
+
+    public static FieldAccessor create(Field field) {
+        return factory.create(field);
+    }
+
+    public static FieldAccessorFactory getFactory() {
+        return factory;
+    }
+
+    public static void setFactory(FieldAccessorFactory factory) {
+        FieldAccessors.factory = factory;
+    }
+
+}
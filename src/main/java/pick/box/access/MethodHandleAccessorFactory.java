@@ -0,0 +1,56 @@
+package pick.box.access;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * <pre>
+ * Builds accessors on MethodHandles bound to the field when the accessor is made.
+ *
+ * Fields of classes the library can't get a lookup for (and final fields, which
+ * have no setter handle) fall back to a ReflectionAccessorFactory accessor.
+ * </pre>
+ */
+public class MethodHandleAccessorFactory implements FieldAccessorFactory {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final ReflectionAccessorFactory fallback = new ReflectionAccessorFactory();
+
+
+    @Override
+    public FieldAccessor create(Field field) {
+        if (Modifier.isFinal(field.getModifiers()) || Modifier.isStatic(field.getModifiers()))
+            return fallback.create(field);
+
+        try {
+            MethodHandles.Lookup lookup = lookupFor(field.getDeclaringClass());
+            MethodHandle getter = lookup.unreflectGetter(field);
+            MethodHandle setter = lookup.unreflectSetter(field);
+
+            // (to, from) -> to.field = from.field, primitives never get boxed
+            MethodHandle copier = MethodHandles.filterArguments(setter, 1, getter)
+                .asType(SETTER_TYPE);
+
+            return new MethodHandleFieldAccessor(
+                field,
+                getter.asType(GETTER_TYPE),
+                setter.asType(SETTER_TYPE),
+                copier
+            );
+        } catch (IllegalAccessException | RuntimeException e) {
+            return fallback.create(field);
+        }
+    }
+
+    private static MethodHandles.Lookup lookupFor(Class<?> type) throws IllegalAccessException {
+        if (Modifier.isPublic(type.getModifiers()))
+            return MethodHandles.publicLookup();
+        return MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+    }
+
+}
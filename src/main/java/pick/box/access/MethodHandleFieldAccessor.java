@@ -0,0 +1,70 @@
+package pick.box.access;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Field;
+
+import pick.box.exception.PickerException;
+
+/**
+ * FieldAccessor using pre-bound getter, setter and copy MethodHandles
+ */
+public class MethodHandleFieldAccessor implements FieldAccessor {
+
+    private final Field field;
+    private final boolean primitive;
+    private final MethodHandle getter;
+    private final MethodHandle setter;
+    private final MethodHandle copier;
+
+
+    MethodHandleFieldAccessor(Field field, MethodHandle getter, MethodHandle setter, MethodHandle copier) {
+        this.field = field;
+        this.primitive = field.getType().isPrimitive();
+        this.getter = getter;
+        this.setter = setter;
+        this.copier = copier;
+    }
+
+
+    @Override
+    public Object get(Object target) {
+        try {
+            return (Object) getter.invokeExact(target);
+        } catch (Throwable e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public void set(Object target, Object value) {
+        try {
+            setter.invokeExact(target, value);
+        } catch (Throwable e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public void copy(Object from, Object to) {
+        try {
+            copier.invokeExact(to, from);
+        } catch (Throwable e) {
+            throw failure(e);
+        }
+    }
+
+    @Override
+    public boolean isNull(Object target) {
+        return !primitive && get(target) == null;
+    }
+
+
+    private RuntimeException failure(Throwable e) {
+        if (e instanceof Error error)
+            throw error;
+        if (e instanceof PickerException pickerException)
+            return pickerException;
+        return new PickerException("Tried to map bad value to field '" + field.getName() + "' in class '" + field.getDeclaringClass().getName() + "'", (Exception) e);
+    }
+
+}
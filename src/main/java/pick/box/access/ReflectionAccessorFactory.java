@@ -0,0 +1,25 @@
+package pick.box.access;
+
+import java.lang.reflect.Field;
+
+import pick.box.exception.PickerException;
+
+/**
+ * <pre>
+ * Builds accessors on java.lang.reflect.Field. The field is made accessible once
+ * when the accessor is made rather than on every read or write.
+ * </pre>
+ */
+public class ReflectionAccessorFactory implements FieldAccessorFactory {
+
+    @Override
+    public FieldAccessor create(Field field) {
+        try {
+            field.setAccessible(true);
+        } catch (RuntimeException e) {
+            throw new PickerException("Couldn't access field '" + field.getName() + "' in class '" + field.getDeclaringClass().getName() + "'", e);
+        }
+        return new ReflectionFieldAccessor(field);
+    }
+
+}
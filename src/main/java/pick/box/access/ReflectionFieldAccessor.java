@@ -0,0 +1,54 @@
+package pick.box.access;
+
+import java.lang.reflect.Field;
+
+import pick.box.exception.PickerException;
+
+/**
+ * FieldAccessor using java.lang.reflect.Field
+ */
+public class ReflectionFieldAccessor implements FieldAccessor {
+
+    private final Field field;
+    private final boolean primitive;
+
+
+    ReflectionFieldAccessor(Field field) {
+        this.field = field;
+        this.primitive = field.getType().isPrimitive();
+    }
+
+
+    @Override
+    public Object get(Object target) {
+        try {
+            return field.get(target);
+        } catch (IllegalArgumentException e) {
+            throw new PickerException("Tried to map bad value to field '" + field.getName() + "' in class '" + field.getDeclaringClass().getName() + "'", e);
+        } catch (IllegalAccessException e) {
+            throw new PickerException("Couldn't access field '" + field.getName() + "' in class '" + field.getDeclaringClass().getName() + "'", e);
+        }
+    }
+
+    @Override
+    public void set(Object target, Object value) {
+        try {
+            field.set(target, value);
+        } catch (IllegalArgumentException e) {
+            throw new PickerException("Tried to map bad value to field '" + field.getName() + "' in class '" + field.getDeclaringClass().getName() + "'", e);
+        } catch (IllegalAccessException e) {
+            throw new PickerException("Couldn't access field '" + field.getName() + "' in class '" + field.getDeclaringClass().getName() + "'", e);
+        }
+    }
+
+    @Override
+    public void copy(Object from, Object to) {
+        set(to, get(from));
+    }
+
+    @Override
+    public boolean isNull(Object target) {
+        return !primitive && get(target) == null;
+    }
+
+}
@@ -0,0 +1,39 @@
+package pick.box.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <pre>
+ * Put on a Resolver class to have PickBox cache its results between requests.
+ * Meant for resolvers returning data that rarely changes (reference data, config
+ * etc). Results are cached by parent key and extraData, see ResolverCache.
+ *
+ *     {@literal @}CacheResults(ttl = 10, timeUnit = TimeUnit.MINUTES, maxEntries = 5000)
+ *     public class CountryResolver extends Resolver{@literal <}Country, Address, String> { ... }
+ *
+ * The same can be set up without the annotation with PickBox.setResolverCache.
+ * </pre>
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface CacheResults {
+
+    /**
+     * How long a result is kept after it's loaded, 0 to keep it until it's evicted
+     */
+    long ttl() default 0;
+
+    TimeUnit timeUnit() default TimeUnit.SECONDS;
+
+    /**
+     * Most results kept, the least recently used are evicted past this
+     */
+    long maxEntries() default 1000;
+
+}
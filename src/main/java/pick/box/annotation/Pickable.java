@@ -0,0 +1,23 @@
+package pick.box.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <pre>
+ * Marks a request/response class so the PickBox annotation processor generates
+ * a '{ClassName}_PickBox' class next to it at build time. The generated class has
+ * direct field accessors, a mapifier and a default object builder, which PickBox,
+ * PickerUtil and TypeUtil use instead of reflection.
+ *
+ * The processor runs automatically when pick-box is on the compile classpath.
+ * </pre>
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface Pickable {
+}
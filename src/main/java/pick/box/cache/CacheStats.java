@@ -0,0 +1,61 @@
+package pick.box.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hit, miss and eviction counters of one of PickBox's caches. Safe to update from many threads.
+ */
+public class CacheStats {
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+
+    public void recordHit() {
+        hits.increment();
+    }
+
+    public void recordMiss() {
+        misses.increment();
+    }
+
+    public void recordEviction() {
+        evictions.increment();
+    }
+
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * hits / (hits + misses), or 0 if nothing has been looked up yet
+     */
+    public double getHitRate() {
+        long h = getHits();
+        long total = h + getMisses();
+        return (total == 0)? 0 : (double) h / total;
+    }
+
+    public void reset() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+
+    @Override
+    public String toString() {
+        return "CacheStats{hits=" + getHits() + ", misses=" + getMisses() + ", evictions=" + getEvictions() + "}";
+    }
+
+}
@@ -0,0 +1,178 @@
+package pick.box.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * <pre>
+ * A cache bounded by total weight (entry count by default) whose entries expire
+ * a fixed time after they're written.
+ *
+ * Reads don't take a lock. Expired entries are dropped when they're read or when
+ * the cache is over its weight. Going over the weight evicts expired entries and
+ * then the least recently used ones until the cache is 5% under its max weight, so
+ * a full cache scans its entries once every so many inserts rather than on each.
+ * Null values can't be cached.
+ * </pre>
+ */
+public class ExpiringCache<K, V> {
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final long maxWeight;
+    private final long ttlNanos;
+    private final Weigher<? super K, ? super V> weigher;
+    private final AtomicLong weight = new AtomicLong();
+    private final CacheStats stats = new CacheStats();
+    private final Object evictionLock = new Object();
+
+
+    /**
+     * @param maxWeight max total weight of the entries
+     * @param ttl how long entries are kept after being written, null to keep them until evicted
+     * @param weigher weight of each entry, null for a weight of 1 each
+     */
+    public ExpiringCache(long maxWeight, Duration ttl, Weigher<? super K, ? super V> weigher) {
+        if (maxWeight < 1)
+            throw new IllegalArgumentException("Cache weight must be at least 1 but was " + maxWeight);
+        if (ttl != null && (ttl.isNegative() || ttl.isZero()))
+            throw new IllegalArgumentException("Cache ttl must be positive but was " + ttl);
+
+        this.maxWeight = maxWeight;
+        this.ttlNanos = (ttl == null)? 0 : ttl.toNanos();
+        this.weigher = (weigher == null)? (key, value) -> 1 : weigher;
+    }
+
+
+    /**
+     * @return the cached value, or null if there isn't one or it expired
+     */
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            stats.recordMiss();
+            return null;
+        }
+
+        long now = System.nanoTime();
+        if (isExpired(entry, now)) {
+            remove(key, entry, true);
+            stats.recordMiss();
+            return null;
+        }
+
+        entry.lastUsed = now;
+        stats.recordHit();
+        return entry.value;
+    }
+
+    public void put(K key, V value) {
+        long entryWeight = weigher.weigh(key, value);
+        if (entryWeight < 0)
+            throw new IllegalArgumentException("Weight of cache entry " + key + " was negative: " + entryWeight);
+
+        Entry<V> entry = new Entry<>(value, entryWeight, System.nanoTime());
+        Entry<V> previous = entries.put(key, entry);
+        weight.addAndGet(entryWeight - ((previous == null)? 0 : previous.weight));
+        evictIfNeeded();
+    }
+
+    public void invalidate(K key) {
+        Entry<V> entry = entries.remove(key);
+        if (entry != null)
+            weight.addAndGet(-entry.weight);
+    }
+
+    /**
+     * Removes every entry whose key matches
+     */
+    public void invalidateIf(Predicate<? super K> matches) {
+        for (K key : entries.keySet()) {
+            if (matches.test(key))
+                invalidate(key);
+        }
+    }
+
+    public void invalidateAll() {
+        invalidateIf(key -> true);
+    }
+
+    /**
+     * Number of entries, including expired ones that haven't been dropped yet
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    public long getWeight() {
+        return weight.get();
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public CacheStats getStats() {
+        return stats;
+    }
+
+
+    private boolean isExpired(Entry<V> entry, long now) {
+        return ttlNanos > 0 && now - entry.written >= ttlNanos;
+    }
+
+    private void remove(K key, Entry<V> entry, boolean eviction) {
+        if (entries.remove(key, entry)) {
+            weight.addAndGet(-entry.weight);
+            if (eviction)
+                stats.recordEviction();
+        }
+    }
+
+    private void evictIfNeeded() {
+        if (weight.get() <= maxWeight)
+            return;
+
+        synchronized (evictionLock) {
+            if (weight.get() <= maxWeight)
+                return;
+
+            long now = System.nanoTime();
+            long target = maxWeight - maxWeight / 20;
+
+            // expired entries first, then least recently used
+            List<Map.Entry<K, Entry<V>>> candidates = new ArrayList<>(entries.entrySet());
+            candidates.sort(Comparator.comparingLong(
+                candidate -> isExpired(candidate.getValue(), now)? Long.MIN_VALUE : candidate.getValue().lastUsed - now
+            ));
+
+            for (Map.Entry<K, Entry<V>> candidate : candidates) {
+                if (weight.get() <= target && !isExpired(candidate.getValue(), now))
+                    break;
+                remove(candidate.getKey(), candidate.getValue(), true);
+            }
+        }
+    }
+
+
+    private static class Entry<V> {
+
+        private final V value;
+        private final long weight;
+        private final long written;
+        private volatile long lastUsed;
+
+        Entry(V value, long weight, long written) {
+            this.value = value;
+            this.weight = weight;
+            this.written = written;
+            this.lastUsed = written;
+        }
+    }
+
+}
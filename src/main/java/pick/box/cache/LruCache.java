@@ -0,0 +1,128 @@
+package pick.box.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * <pre>
+ * A size bounded cache that evicts the least recently used entry.
+ *
+ * Reads don't take a lock, each entry just records when it was last used. When
+ * an insert takes the cache over its size the oldest entries are found with a scan,
+ * so this is meant for caches that are read far more than they are written
+ * (query plans, persisted queries...).
+ * </pre>
+ */
+public class LruCache<K, V> {
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final CacheStats stats = new CacheStats();
+
+
+    public LruCache(int maxSize) {
+        if (maxSize < 1)
+            throw new IllegalArgumentException("Cache size must be at least 1 but was " + maxSize);
+        this.maxSize = maxSize;
+    }
+
+
+    /**
+     * @return the cached value, or null if there isn't one
+     */
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            stats.recordMiss();
+            return null;
+        }
+        entry.touch();
+        stats.recordHit();
+        return entry.value;
+    }
+
+    /**
+     * Gets the cached value, loading it if missing. Concurrent loads of the same key
+     * wait for the first one rather than loading again.
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null) {
+            entry.touch();
+            stats.recordHit();
+            return entry.value;
+        }
+
+        stats.recordMiss();
+        entry = entries.computeIfAbsent(key, k -> new Entry<>(loader.apply(k)));
+        entry.touch();
+        evictIfNeeded();
+        return entry.value;
+    }
+
+    public void put(K key, V value) {
+        Entry<V> entry = new Entry<>(value);
+        entry.touch();
+        entries.put(key, entry);
+        evictIfNeeded();
+    }
+
+    public boolean containsKey(K key) {
+        return entries.containsKey(key);
+    }
+
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public CacheStats getStats() {
+        return stats;
+    }
+
+
+    private void evictIfNeeded() {
+        while (entries.size() > maxSize) {
+            K oldestKey = null;
+            Entry<V> oldest = null;
+            for (Map.Entry<K, Entry<V>> candidate : entries.entrySet()) {
+                if (oldest == null || candidate.getValue().lastUsed < oldest.lastUsed) {
+                    oldestKey = candidate.getKey();
+                    oldest = candidate.getValue();
+                }
+            }
+            if (oldestKey == null)
+                return;
+            if (entries.remove(oldestKey, oldest))
+                stats.recordEviction();
+        }
+    }
+
+
+    private static class Entry<V> {
+
+        private final V value;
+        private volatile long lastUsed;
+
+        Entry(V value) {
+            this.value = value;
+        }
+
+        void touch() {
+            lastUsed = System.nanoTime();
+        }
+    }
+
+}
@@ -0,0 +1,191 @@
+package pick.box.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import pick.box.query.FieldArguments;
+import pick.box.query.SelectionSet;
+
+/**
+ * <pre>
+ * Results of one resolver kept between requests, by the parent's key (see 
+ * ParentKeyExtractor), the request's extraData, the arguments of the field
+ * (eg its page) and, for resolvers using it, the selection. The parent key of a
+ * root resolver is null.
+ *
+ * When a result isn't cached, callers asking for the same key while it's being
+ * loaded wait for that load instead of calling the resolver again. Failed loads
+ * aren't cached.
+ *
+ * Cached results are shared by every request, so they shouldn't be changed after
+ * they're returned from the resolver.
+ * </pre>
+ */
+public class ResolverCache {
+
+    /**
+     * Key of a cached result
+     */
+    public record Key(Object parentKey, Object extraData, FieldArguments arguments, SelectionSet selection) {}
+
+    private static final Object NULL = new Object();
+
+
+    private final ExpiringCache<Key, Object> results;
+    private final Map<Key, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+
+
+    public ResolverCache(ResolverCacheSettings settings) {
+        Weigher<Object, Object> weigher = settings.getWeigher();
+        this.results = new ExpiringCache<>(
+            settings.getMaxWeight(), 
+            settings.getTtl(), 
+            (weigher == null)? null : (key, value) -> weigher.weigh(key, (value == NULL)? null : value)
+        );
+    }
+
+
+    /**
+     * <pre>
+     * Gets the result for each parent, calling the loader with the parents that 
+     * aren't cached or already loading.
+     * </pre>
+     * @param parents parents needing a result
+     * @param extraData extraData of the request
+     * @param arguments arguments of the field being resolved (can be null)
+     * @param selection selection the resolver's results depend on (null if they don't)
+     * @param keyExtractor key of a non null parent, calls for parents with a null key aren't cached
+     * @param loader calls the resolver for a list of parents, returning one result per parent
+     * @return future of one result per parent
+     */
+    public CompletableFuture<List<Object>> resolveAll(
+        List<Object> parents, 
+        Object extraData, 
+        FieldArguments arguments,
+        SelectionSet selection,
+        Function<Object, Object> keyExtractor, 
+        Function<List<Object>, CompletableFuture<List<?>>> loader
+    ) {
+        List<CompletableFuture<Object>> futures = new ArrayList<>(parents.size());
+        List<Object> missing = new ArrayList<>();
+        List<Key> missingKeys = new ArrayList<>();
+        List<CompletableFuture<Object>> missingFutures = new ArrayList<>();
+
+        for (Object parent : parents) {
+            Object parentKey = (parent == null)? null : keyExtractor.apply(parent);
+            if (parent != null && parentKey == null) {
+                CompletableFuture<Object> future = new CompletableFuture<>();
+                missing.add(parent);
+                missingKeys.add(null);
+                missingFutures.add(future);
+                futures.add(future);
+                continue;
+            }
+
+            Key key = new Key(parentKey, extraData, arguments, selection);
+            Object cached = results.get(key);
+            if (cached != null) {
+                futures.add(CompletableFuture.completedFuture((cached == NULL)? null : cached));
+                continue;
+            }
+
+            CompletableFuture<Object> future = new CompletableFuture<>();
+            CompletableFuture<Object> running = loading.putIfAbsent(key, future);
+            if (running != null) {
+                futures.add(running);
+                continue;
+            }
+
+            missing.add(parent);
+            missingKeys.add(key);
+            missingFutures.add(future);
+            futures.add(future);
+        }
+
+        if (!missing.isEmpty())
+            load(missing, missingKeys, missingFutures, loader);
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            List<Object> values = new ArrayList<>(futures.size());
+            for (CompletableFuture<Object> future : futures)
+                values.add(future.join());
+            return values;
+        });
+    }
+
+    private void load(
+        List<Object> parents, 
+        List<Key> keys, 
+        List<CompletableFuture<Object>> futures, 
+        Function<List<Object>, CompletableFuture<List<?>>> loader
+    ) {
+        CompletableFuture<List<?>> loaded;
+        try {
+            loaded = loader.apply(parents);
+        } catch (RuntimeException e) {
+            loaded = CompletableFuture.failedFuture(e);
+        }
+
+        loaded.whenComplete((values, loadFailure) -> {
+            Throwable failure = (loadFailure == null && (values == null || values.size() != futures.size()))?
+                new IllegalStateException("Resolver returned " + ((values == null)? "null" : values.size() + " results") + " for " + futures.size() + " parents") :
+                loadFailure;
+
+            for (int i = 0; i < futures.size(); i++) {
+                Key key = keys.get(i);
+                if (failure != null) {
+                    if (key != null)
+                        loading.remove(key, futures.get(i));
+                    futures.get(i).completeExceptionally(failure);
+                    continue;
+                }
+
+                Object value = values.get(i);
+                if (key != null) {
+                    results.put(key, (value == null)? NULL : value);
+                    loading.remove(key, futures.get(i));
+                }
+                futures.get(i).complete(value);
+            }
+        });
+    }
+
+
+    /**
+     * Drops the cached results for a parent key and extraData, whatever the field arguments
+     */
+    public void invalidate(Object parentKey, Object extraData) {
+        results.invalidateIf(key -> Objects.equals(key.parentKey(), parentKey) && Objects.equals(key.extraData(), extraData));
+    }
+
+    /**
+     * Drops every cached result for a parent key, whatever the extraData
+     */
+    public void invalidateParent(Object parentKey) {
+        results.invalidateIf(key -> Objects.equals(key.parentKey(), parentKey));
+    }
+
+    public void invalidateAll() {
+        results.invalidateAll();
+    }
+
+    public int size() {
+        return results.size();
+    }
+
+    /**
+     * <pre>
+     * Hits, misses and evictions (including expired results). A call that waited
+     * on a load already running counts as a miss.
+     * </pre>
+     */
+    public CacheStats getStats() {
+        return results.getStats();
+    }
+
+}
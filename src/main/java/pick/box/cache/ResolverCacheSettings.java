@@ -0,0 +1,76 @@
+package pick.box.cache;
+
+import java.time.Duration;
+
+import pick.box.annotation.CacheResults;
+
+/**
+ * <pre>
+ * How a resolver's results are cached between requests, see PickBox.setResolverCache.
+ *
+ * By default a cache holds up to maxEntries results. Call setMaxWeight to bound
+ * it by the total weight of the results instead (eg an estimate of their size).
+ * </pre>
+ */
+public class ResolverCacheSettings {
+
+    private Duration ttl;
+    private long maxWeight;
+    private Weigher<Object, Object> weigher;
+
+
+    /**
+     * @param ttl how long a result is kept after it's loaded, null to keep it until it's evicted
+     * @param maxEntries most results kept
+     */
+    public ResolverCacheSettings(Duration ttl, long maxEntries) {
+        this.ttl = ttl;
+        this.maxWeight = maxEntries;
+    }
+
+
+    /**
+     * Settings from a resolver's @CacheResults annotation
+     */
+    public static ResolverCacheSettings of(CacheResults cacheResults) {
+        Duration ttl = (cacheResults.ttl() > 0)? 
+            Duration.ofNanos(cacheResults.timeUnit().toNanos(cacheResults.ttl())) : 
+            null;
+        return new ResolverCacheSettings(ttl, cacheResults.maxEntries());
+    }
+
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    /**
+     * Max number of results, or max total weight if a weigher is set
+     */
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * Null if the cache is bounded by entry count
+     */
+    public Weigher<Object, Object> getWeigher() {
+        return weigher;
+    }
+
+    /**
+     * Bounds the cache by the total weight of its results instead of their count
+     *
+     * @param maxWeight max total weight
+     * @param weigher gives the weight of a result (the key is the cache key, the value the result, which can be null)
+     */
+    public void setMaxWeight(long maxWeight, Weigher<Object, Object> weigher) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+}
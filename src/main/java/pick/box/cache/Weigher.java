@@ -0,0 +1,14 @@
+package pick.box.cache;
+
+/**
+ * Gives the weight of a cache entry, for caches bounded by total weight instead of entry count
+ */
+@FunctionalInterface
+public interface Weigher<K, V> {
+
+    /**
+     * @return weight of the entry, 0 or more
+     */
+    long weigh(K key, V value);
+
+}
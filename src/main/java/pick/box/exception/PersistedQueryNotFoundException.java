@@ -0,0 +1,18 @@
+package pick.box.exception;
+
+/**
+ * Thrown when a persisted query is called by a hash that isn't registered (or was evicted), the client should send the full request
+ */
+public class PersistedQueryNotFoundException extends PickerException {
+
+    private final String hash;
+
+    public PersistedQueryNotFoundException(String hash) {
+        super("No persisted query registered with hash '" + hash + "'", null);
+        this.hash = hash;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+}
@@ -0,0 +1,18 @@
+package pick.box.exception;
+
+/**
+ * Thrown when fulfilling a field fails, with the path of the field in the response (eg 'University.classes.classDays')
+ */
+public class ResolverException extends PickerException {
+
+    private final String fieldPath;
+
+    public ResolverException(String fieldPath, Exception cause) {
+        super("Couldn't resolve field '" + fieldPath + "': " + cause.getMessage(), cause);
+        this.fieldPath = fieldPath;
+    }
+
+    public String getFieldPath() {
+        return fieldPath;
+    }
+}
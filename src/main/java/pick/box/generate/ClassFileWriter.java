@@ -0,0 +1,149 @@
+package pick.box.generate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import pick.box.exception.PickerException;
+
+/**
+ * <pre>
+ * Just enough of the class file format to write small classes with straight-line
+ * methods (no branches, so no stack map frames are needed).
+ * </pre>
+ */
+class ClassFileWriter {
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    private static final int JAVA_17 = 61;
+
+    private final ByteArrayOutputStream constantBytes = new ByteArrayOutputStream();
+    private final DataOutputStream constants = new DataOutputStream(constantBytes);
+    private final Map<String, Integer> constantIndexes = new HashMap<>();
+    private int constantCount = 1;
+
+    private final ByteArrayOutputStream methodBytes = new ByteArrayOutputStream();
+    private final DataOutputStream methods = new DataOutputStream(methodBytes);
+    private int methodCount = 0;
+
+
+    int utf8(String value) {
+        return constant("U" + value, out -> {
+            out.writeByte(1);
+            out.writeUTF(value);
+        });
+    }
+
+    int classRef(String internalName) {
+        int name = utf8(internalName);
+        return constant("C" + internalName, out -> {
+            out.writeByte(7);
+            out.writeShort(name);
+        });
+    }
+
+    int fieldRef(String owner, String name, String descriptor) {
+        return memberRef(9, owner, name, descriptor);
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        return memberRef(10, owner, name, descriptor);
+    }
+
+    private int memberRef(int tag, String owner, String name, String descriptor) {
+        int ownerIndex = classRef(owner);
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        int nameAndType = constant("N" + name + ":" + descriptor, out -> {
+            out.writeByte(12);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+        });
+        return constant(tag + owner + "." + name + ":" + descriptor, out -> {
+            out.writeByte(tag);
+            out.writeShort(ownerIndex);
+            out.writeShort(nameAndType);
+        });
+    }
+
+    void method(int access, String name, String descriptor, int maxStack, int maxLocals, byte[] code) {
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        int codeName = utf8("Code");
+        try {
+            methods.writeShort(access);
+            methods.writeShort(nameIndex);
+            methods.writeShort(descriptorIndex);
+            methods.writeShort(1);
+            methods.writeShort(codeName);
+            methods.writeInt(12 + code.length);
+            methods.writeShort(maxStack);
+            methods.writeShort(maxLocals);
+            methods.writeInt(code.length);
+            methods.write(code);
+            methods.writeShort(0); // exception table
+            methods.writeShort(0); // attributes
+        } catch (IOException e) {
+            throw new PickerException("Couldn't write method " + name, e);
+        }
+        methodCount++;
+    }
+
+    byte[] toBytes(String thisClass, String superClass, String... interfaces) {
+        int thisIndex = classRef(thisClass);
+        int superIndex = classRef(superClass);
+        int[] interfaceIndexes = new int[interfaces.length];
+        for (int i = 0; i < interfaces.length; i++)
+            interfaceIndexes[i] = classRef(interfaces[i]);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(JAVA_17);
+            out.writeShort(constantCount);
+            out.write(constantBytes.toByteArray());
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisIndex);
+            out.writeShort(superIndex);
+            out.writeShort(interfaceIndexes.length);
+            for (int index : interfaceIndexes)
+                out.writeShort(index);
+            out.writeShort(0); // fields
+            out.writeShort(methodCount);
+            out.write(methodBytes.toByteArray());
+            out.writeShort(0); // attributes
+        } catch (IOException e) {
+            throw new PickerException("Couldn't write class " + thisClass, e);
+        }
+        return bytes.toByteArray();
+    }
+
+
+    private int constant(String key, ConstantWrite write) {
+        Integer existing = constantIndexes.get(key);
+        if (existing != null)
+            return existing;
+
+        try {
+            write.to(constants);
+        } catch (IOException e) {
+            throw new PickerException("Couldn't write constant " + key, e);
+        }
+        int index = constantCount++;
+        constantIndexes.put(key, index);
+        return index;
+    }
+
+    @FunctionalInterface
+    private interface ConstantWrite {
+        void to(DataOutputStream out) throws IOException;
+    }
+
+}
@@ -0,0 +1,60 @@
+package pick.box.generate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import pick.box.plan.ProjectionPlan;
+
+/**
+ * <pre>
+ * Cache of generated projectors, one per (class, selection shape).
+ *
+ * A selection shape is a bit mask over the fields of the class's ProjectionPlan,
+ * so only classes with up to 64 public fields get projectors. At most
+ * MAX_SHAPES_PER_CLASS shapes are generated for one class, requests with
+ * other shapes use the accessor based projection.
+ * </pre>
+ */
+public class GeneratedProjectors {
+
+    public static final int MAX_SHAPES_PER_CLASS = 256;
+
+    // marks shapes a projector couldn't be generated for
+    private static final Projector NONE = from -> null;
+
+    private static final ClassValue<Map<Long, Projector>> PROJECTORS = new ClassValue<>() {
+        @Override
+        protected Map<Long, Projector> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+
+    private GeneratedProjectors() {}
+
+
+    /**
+     * Gets the projector for a class and selection shape, generating it the first time
+     *
+     * @param plan plan of the class to project
+     * @param selected bit i is set if field i of the plan is selected
+     * @return the projector, or null if one couldn't be generated
+     */
+    public static Projector get(ProjectionPlan plan, long selected) {
+        Map<Long, Projector> projectors = PROJECTORS.get(plan.getType());
+
+        Projector projector = projectors.get(selected);
+        if (projector == null) {
+            if (projectors.size() >= MAX_SHAPES_PER_CLASS)
+                return null;
+
+            projector = projectors.computeIfAbsent(selected, shape -> {
+                Projector generated = ProjectorGenerator.generate(plan, shape);
+                return (generated == null)? NONE : generated;
+            });
+        }
+
+        return (projector == NONE)? null : projector;
+    }
+
+}
@@ -0,0 +1,36 @@
+package pick.box.generate;
+
+import java.util.Map;
+
+import pick.box.access.FieldAccessor;
+
+/**
+ * <pre>
+ * Implemented by the classes the annotation processor generates for @Pickable
+ * classes. Everything here is plain java, no reflection.
+ * </pre>
+ */
+public interface PickableSupport<T> {
+
+    /**
+     * New instance made with the no args constructor, or null if the class doesn't have an accessible one
+     */
+    T newInstance();
+
+    /**
+     * Accessor for a public field of the class, or null if one wasn't generated for the field
+     */
+    FieldAccessor accessor(String fieldName);
+
+    /**
+     * Same result as PickerUtil.mapify
+     */
+    Map<String, Object> mapify(T object);
+
+    /**
+     * Same result as TypeUtil.buildDefaultForNonBasicClass, or null if the class has fields
+     * a default couldn't be generated for
+     */
+    T buildDefault();
+
+}
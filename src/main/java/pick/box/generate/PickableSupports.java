@@ -0,0 +1,51 @@
+package pick.box.generate;
+
+import java.util.Optional;
+
+/**
+ * <pre>
+ * Finds the PickableSupport generated for a class, if there is one. The generated
+ * class is '{binary name}_PickBox' in the same package and class loader.
+ * Lookups are cached per class.
+ * </pre>
+ */
+public class PickableSupports {
+
+    public static final String SUFFIX = "_PickBox";
+
+    private static final ClassValue<Optional<PickableSupport<?>>> SUPPORTS = new ClassValue<>() {
+        @Override
+        protected Optional<PickableSupport<?>> computeValue(Class<?> type) {
+            return Optional.ofNullable(load(type));
+        }
+    };
+
+
+    private PickableSupports() {}
+
+
+    /**
+     * @param type class to find the generated support for
+     * @return the generated support, or null if the class wasn't processed
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> PickableSupport<T> find(Class<T> type) {
+        return (PickableSupport<T>) SUPPORTS.get(type).orElse(null);
+    }
+
+
+    private static PickableSupport<?> load(Class<?> type) {
+        if (type.isPrimitive() || type.isArray() || type.getClassLoader() == null)
+            return null;
+
+        try {
+            Class<?> supportType = Class.forName(type.getName() + SUFFIX, true, type.getClassLoader());
+            if (!PickableSupport.class.isAssignableFrom(supportType))
+                return null;
+            return (PickableSupport<?>) supportType.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+}
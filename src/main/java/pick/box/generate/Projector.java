@@ -0,0 +1,16 @@
+package pick.box.generate;
+
+/**
+ * <pre>
+ * Copies the selected basic fields of a resolver output into a new instance of
+ * the same class, and nulls out the unselected ones. Fields that need further
+ * projection (lists, maps and nested objects) are left for PickBox to fill in.
+ *
+ * Implementations are generated per (class, selection shape), see GeneratedProjectors.
+ * </pre>
+ */
+public interface Projector {
+
+    Object project(Object from);
+
+}
@@ -0,0 +1,195 @@
+package pick.box.generate;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.List;
+
+import pick.box.plan.FieldKind;
+import pick.box.plan.FieldPlan;
+import pick.box.plan.ProjectionPlan;
+
+/**
+ * <pre>
+ * Writes and defines a hidden class implementing Projector for one class and
+ * selection shape. The generated project method is straight-line code, eg for
+ * a selection of 'name' and 'age' on Child:
+ *
+ *     Child to = new Child();
+ *     to.name = ((Child) from).name;
+ *     to.age = ((Child) from).age;
+ *     to.gender = null;
+ *     return to;
+ *
+ * Returns null whenever a projector can't be made for the class (no lookup with
+ * full access to its package, final or static fields, no no-args constructor...)
+ * so the caller can fall back to the accessor based projection.
+ * </pre>
+ */
+class ProjectorGenerator {
+
+    private static final String OBJECT = "java/lang/Object";
+    private static final String PROJECTOR = Projector.class.getName().replace('.', '/');
+
+    private static final int ACONST_NULL = 0x01;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int ALOAD_2 = 0x2c;
+    private static final int ASTORE_1 = 0x4c;
+    private static final int ASTORE_2 = 0x4d;
+    private static final int DUP = 0x59;
+    private static final int ARETURN = 0xb0;
+    private static final int RETURN = 0xb1;
+    private static final int GETFIELD = 0xb4;
+    private static final int PUTFIELD = 0xb5;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int NEW = 0xbb;
+    private static final int CHECKCAST = 0xc0;
+
+
+    private ProjectorGenerator() {}
+
+
+    /**
+     * @param plan plan of the class to project
+     * @param selected bit i is set if field i of the plan is selected
+     * @return a new projector, or null if one can't be generated
+     */
+    static Projector generate(ProjectionPlan plan, long selected) {
+        Class<?> type = plan.getType();
+        if (!canGenerate(plan))
+            return null;
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+            if (!lookup.hasFullPrivilegeAccess())
+                return null;
+
+            byte[] bytes = write(plan, selected);
+            MethodHandles.Lookup hidden = lookup.defineHiddenClass(bytes, true, MethodHandles.Lookup.ClassOption.NESTMATE);
+
+            return (Projector) hidden.findConstructor(hidden.lookupClass(), MethodType.methodType(void.class)).invoke();
+        } catch (Throwable e) {
+            if (e instanceof VirtualMachineError error)
+                throw error;
+            return null;
+        }
+    }
+
+
+    private static boolean canGenerate(ProjectionPlan plan) {
+        Class<?> type = plan.getType();
+        if (type.isHidden() || type.isArray() || type.isInterface() || type.isPrimitive() || Modifier.isAbstract(type.getModifiers()))
+            return false;
+        if (plan.getFields().size() > Long.SIZE)
+            return false;
+
+        try {
+            Constructor<?> constructor = type.getDeclaredConstructor();
+            if (constructor.getParameterCount() != 0)
+                return false;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+
+        for (FieldPlan field : plan.getFields()) {
+            Field f = field.getField();
+            if (Modifier.isFinal(f.getModifiers()) || Modifier.isStatic(f.getModifiers()))
+                return false;
+            if (f.getDeclaringClass() != type && !Modifier.isPublic(f.getDeclaringClass().getModifiers()))
+                return false;
+        }
+        return true;
+    }
+
+    private static byte[] write(ProjectionPlan plan, long selected) {
+        Class<?> type = plan.getType();
+        String owner = internalName(type);
+        String name = owner + "$$PickBoxProjector";
+
+        ClassFileWriter classFile = new ClassFileWriter();
+
+        // public <init>() { super(); }
+        Code init = new Code();
+        init.op(ALOAD_0);
+        init.op(INVOKESPECIAL).u2(classFile.methodRef(OBJECT, "<init>", "()V"));
+        init.op(RETURN);
+        classFile.method(ClassFileWriter.ACC_PUBLIC, "<init>", "()V", 1, 1, init.toBytes());
+
+        // public Object project(Object from)
+        Code project = new Code();
+        project.op(NEW).u2(classFile.classRef(owner));
+        project.op(DUP);
+        project.op(INVOKESPECIAL).u2(classFile.methodRef(owner, "<init>", "()V"));
+        project.op(ASTORE_2);
+        project.op(ALOAD_1);
+        project.op(CHECKCAST).u2(classFile.classRef(owner));
+        project.op(ASTORE_1);
+
+        List<FieldPlan> fields = plan.getFields();
+        for (FieldPlan field : fields) {
+            Field f = field.getField();
+            boolean isSelected = (selected & (1L << field.getIndex())) != 0;
+            int ref = classFile.fieldRef(internalName(f.getDeclaringClass()), f.getName(), descriptor(f.getType()));
+
+            if (isSelected && field.getKind() == FieldKind.BASIC) {
+                project.op(ALOAD_2);
+                project.op(ALOAD_1);
+                project.op(GETFIELD).u2(ref);
+                project.op(PUTFIELD).u2(ref);
+            }
+            else if (!isSelected && !field.isPrimitive()) {
+                project.op(ALOAD_2);
+                project.op(ACONST_NULL);
+                project.op(PUTFIELD).u2(ref);
+            }
+        }
+        project.op(ALOAD_2);
+        project.op(ARETURN);
+        classFile.method(ClassFileWriter.ACC_PUBLIC, "project", "(Ljava/lang/Object;)Ljava/lang/Object;", 3, 3, project.toBytes());
+
+        return classFile.toBytes(name, OBJECT, PROJECTOR);
+    }
+
+    private static String internalName(Class<?> type) {
+        return type.getName().replace('.', '/');
+    }
+
+    private static String descriptor(Class<?> type) {
+        if (type == int.class) return "I";
+        if (type == long.class) return "J";
+        if (type == double.class) return "D";
+        if (type == float.class) return "F";
+        if (type == boolean.class) return "Z";
+        if (type == byte.class) return "B";
+        if (type == short.class) return "S";
+        if (type == char.class) return "C";
+        if (type.isArray()) return internalName(type);
+        return "L" + internalName(type) + ";";
+    }
+
+
+    private static class Code {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        Code op(int opcode) {
+            bytes.write(opcode);
+            return this;
+        }
+
+        Code u2(int value) {
+            bytes.write((value >>> 8) & 0xFF);
+            bytes.write(value & 0xFF);
+            return this;
+        }
+
+        byte[] toBytes() {
+            return bytes.toByteArray();
+        }
+    }
+
+}
@@ -0,0 +1,396 @@
+package pick.box.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import pick.box.exception.PickerException;
+import pick.box.plan.FieldKind;
+import pick.box.plan.FieldPlan;
+import pick.box.plan.ProjectionPlan;
+import pick.box.query.SelectionParser;
+import pick.box.query.SelectionSet;
+import pick.box.types.TypeUtil;
+
+/**
+ * <pre>
+ * Reads a json request object straight into the SelectionSet PickBox executes,
+ * without binding it to the request class first. A field is selected if it's in
+ * the json and isn't null, and primitive fields are always selected, the same as 
+ * for a request object (so an empty object selects just the primitives).
+ *
+ *     SelectionSet selection = JsonRequestReader.read(Customer.class, httpRequest.getInputStream());
+ *     Customer response = pickBox.resolveSelection(Customer.class, selection, "cus_1");
+ *
+ * Field names are checked against the class's ProjectionPlan as they're read. The
+ * values are skipped over without being decoded, except for nested objects and the
+ * first element of lists of objects, which give the nested selections. Like with
+ * request objects, a list of objects needs an example element. Objects can be 
+ * nested at most SelectionParser.MAX_DEPTH levels under the request object.
+ *
+ * The json has to be UTF-8. A ByteBuffer backed by an array is read in place.
+ * </pre>
+ */
+public final class JsonRequestReader {
+
+    private static final int BUFFER_SIZE = 8192;
+
+
+    private final InputStream in;
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    // bytes read before the current buffer, for error messages
+    private long consumed;
+
+    private byte[] name = new byte[64];
+
+
+    private JsonRequestReader(InputStream in, byte[] buffer, int position, int limit) {
+        this.in = in;
+        this.buffer = buffer;
+        this.position = position;
+        this.limit = limit;
+        this.consumed = -position;
+    }
+
+
+    /**
+     * Reads the json request for a class from a stream. The stream isn't closed.
+     *
+     * @param type the request class
+     * @param json the request as UTF-8 json
+     * @return the fields the request selects
+     * @throws PickerException if the json isn't a valid request for the class, or 
+     * nests deeper than SelectionParser.MAX_DEPTH
+     */
+    public static SelectionSet read(Class<?> type, InputStream json) throws IOException {
+        return new JsonRequestReader(json, new byte[BUFFER_SIZE], 0, 0).readRequest(type);
+    }
+
+    /**
+     * Reads the json request for a class from the remaining bytes of a buffer, leaving its position unchanged
+     */
+    public static SelectionSet read(Class<?> type, ByteBuffer json) {
+        JsonRequestReader reader;
+        if (json.hasArray()) {
+            reader = new JsonRequestReader(null, json.array(), json.arrayOffset() + json.position(), json.arrayOffset() + json.limit());
+        }
+        else {
+            byte[] bytes = new byte[json.remaining()];
+            json.duplicate().get(bytes);
+            reader = new JsonRequestReader(null, bytes, 0, bytes.length);
+        }
+
+        try {
+            return reader.readRequest(type);
+        } catch (IOException e) {
+            // nothing to read from
+            throw new PickerException("Couldn't read the json request", e);
+        }
+    }
+
+    /**
+     * Reads the json request for a class from its bytes
+     */
+    public static SelectionSet read(Class<?> type, byte[] json) {
+        return read(type, ByteBuffer.wrap(json));
+    }
+
+
+    private SelectionSet readRequest(Class<?> type) throws IOException {
+        skipWhitespace();
+        if (peek() != '{')
+            throw error("Expected the request object");
+        SelectionSet selection = readObject(type, 0);
+        skipWhitespace();
+        if (peek() != -1)
+            throw error("Unexpected '" + (char) peek() + "' after the request object");
+        return selection;
+    }
+
+    /**
+     * The selection of an object, depth being how many objects it's nested under
+     */
+    private SelectionSet readObject(Class<?> type, int depth) throws IOException {
+        if (depth > SelectionParser.MAX_DEPTH)
+            throw error("Request is nested deeper than " + SelectionParser.MAX_DEPTH + " levels");
+        ProjectionPlan plan = ProjectionPlan.of(type);
+        Map<String, SelectionSet> fields = new LinkedHashMap<>();
+
+        expect('{');
+        skipWhitespace();
+        if (peek() == '}') {
+            position++;
+            return withPrimitives(plan, fields);
+        }
+
+        while (true) {
+            skipWhitespace();
+            String fieldName = readName();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+
+            FieldPlan field = plan.getField(fieldName);
+            if (field == null)
+                throw error("Class " + type.getName() + " has no public field '" + fieldName + "'");
+
+            SelectionSet nested = readField(field, depth);
+            if (nested != null)
+                fields.put(fieldName, nested);
+            else
+                fields.remove(fieldName);
+
+            skipWhitespace();
+            int next = read();
+            if (next == '}')
+                break;
+            if (next != ',')
+                throw error("Expected ',' or '}'");
+        }
+
+        return withPrimitives(plan, fields);
+    }
+
+    /**
+     * The selection with every primitive field added, a bound request object can't leave them out
+     */
+    private static SelectionSet withPrimitives(ProjectionPlan plan, Map<String, SelectionSet> fields) {
+        for (FieldPlan field : plan.getFields()) {
+            if (field.isPrimitive())
+                fields.putIfAbsent(field.getName(), SelectionSet.EMPTY);
+        }
+        return (fields.isEmpty())? SelectionSet.EMPTY : new SelectionSet(fields);
+    }
+
+    /**
+     * The selection of a field's value, null if the value is null (the field isn't selected)
+     */
+    private SelectionSet readField(FieldPlan field, int depth) throws IOException {
+        if (peek() == 'n') {
+            literal("null");
+            return null;
+        }
+
+        if (field.getKind() == FieldKind.BASIC || field.getKind() == FieldKind.MAP) {
+            skipValue();
+            return SelectionSet.EMPTY;
+        }
+
+        if (field.getKind() == FieldKind.OBJECT) {
+            if (peek() != '{')
+                throw error("Expected an object for field " + field.getName());
+            return readObject(field.getType(), depth + 1);
+        }
+
+        // lists, the first element is the example for the rest
+        if (peek() != '[')
+            throw error("Expected a list for field " + field.getName());
+        position++;
+        skipWhitespace();
+
+        Class<?> elementType = field.getElementType();
+        boolean objects = !TypeUtil.isBasicJavaType(elementType) && !elementType.isEnum();
+        SelectionSet nested = SelectionSet.EMPTY;
+        boolean first = true;
+        while (peek() != ']') {
+            if (!first) {
+                expect(',');
+                skipWhitespace();
+            }
+            if (first && objects && peek() == '{')
+                nested = readObject(elementType, depth + 1);
+            else
+                skipValue();
+            first = false;
+            skipWhitespace();
+        }
+        position++;
+
+        if (objects && nested.isEmpty())
+            throw error("List field " + field.getName() + " needs an example element");
+        return nested;
+    }
+
+
+    /**
+     * Reads a string into the name buffer, decoding escapes
+     */
+    private String readName() throws IOException {
+        if (peek() != '"')
+            throw error("Expected a field name");
+        position++;
+
+        int length = 0;
+        while (true) {
+            int b = read();
+            if (b == -1)
+                throw error("Unterminated string");
+            if (b == '"')
+                break;
+
+            if (b == '\\') {
+                int escaped = read();
+                int c;
+                switch (escaped) {
+                    case 'u':
+                        c = 0;
+                        for (int i = 0; i < 4; i++)
+                            c = (c << 4) | hex(read());
+                        break;
+                    case 'n': c = '\n'; break;
+                    case 't': c = '\t'; break;
+                    case 'r': c = '\r'; break;
+                    case 'b': c = '\b'; break;
+                    case 'f': c = '\f'; break;
+                    case '"': case '\\': case '/': c = escaped; break;
+                    default: throw error("Bad escape in string");
+                }
+                // written back as UTF-8 so the name is decoded in one go
+                byte[] encoded = String.valueOf((char) c).getBytes(StandardCharsets.UTF_8);
+                for (byte e : encoded)
+                    length = appendName(length, e);
+                continue;
+            }
+            length = appendName(length, (byte) b);
+        }
+        return new String(name, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private int appendName(int length, byte b) {
+        if (length == name.length)
+            name = Arrays.copyOf(name, length * 2);
+        name[length] = b;
+        return length + 1;
+    }
+
+    private int hex(int c) {
+        if (c >= '0' && c <= '9')
+            return c - '0';
+        if (c >= 'a' && c <= 'f')
+            return c - 'a' + 10;
+        if (c >= 'A' && c <= 'F')
+            return c - 'A' + 10;
+        throw error("Bad unicode escape in string");
+    }
+
+
+    /**
+     * Skips any json value without decoding it
+     */
+    private void skipValue() throws IOException {
+        int c = peek();
+        switch (c) {
+            case '"':
+                position++;
+                skipString();
+                break;
+            case '{':
+            case '[':
+                skipNested();
+                break;
+            case 't':
+                literal("true");
+                break;
+            case 'f':
+                literal("false");
+                break;
+            case 'n':
+                literal("null");
+                break;
+            default:
+                if (c != '-' && (c < '0' || c > '9'))
+                    throw error((c == -1)? "Unexpected end of json" : "Unexpected '" + (char) c + "'");
+                while (isNumberPart(peek()))
+                    position++;
+        }
+    }
+
+    private void skipString() throws IOException {
+        while (true) {
+            int b = read();
+            if (b == -1)
+                throw error("Unterminated string");
+            if (b == '"')
+                return;
+            if (b == '\\')
+                read();
+        }
+    }
+
+    /**
+     * Skips an object or array, only strings need looking into
+     */
+    private void skipNested() throws IOException {
+        int depth = 0;
+        do {
+            int b = read();
+            if (b == -1)
+                throw error("Unexpected end of json");
+            if (b == '"')
+                skipString();
+            else if (b == '{' || b == '[')
+                depth++;
+            else if (b == '}' || b == ']')
+                depth--;
+        } while (depth > 0);
+    }
+
+    private static boolean isNumberPart(int c) {
+        return (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E';
+    }
+
+    private void literal(String literal) throws IOException {
+        for (int i = 0; i < literal.length(); i++) {
+            if (read() != literal.charAt(i))
+                throw error("Expected " + literal);
+        }
+    }
+
+    private void expect(char c) throws IOException {
+        if (read() != c)
+            throw error("Expected '" + c + "'");
+    }
+
+    private void skipWhitespace() throws IOException {
+        while (true) {
+            int c = peek();
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t')
+                return;
+            position++;
+        }
+    }
+
+
+    private int peek() throws IOException {
+        if (position == limit && !fill())
+            return -1;
+        return buffer[position] & 0xff;
+    }
+
+    private int read() throws IOException {
+        int c = peek();
+        if (c != -1)
+            position++;
+        return c;
+    }
+
+    private boolean fill() throws IOException {
+        if (in == null)
+            return false;
+        consumed += limit;
+        position = 0;
+        limit = Math.max(in.read(buffer, 0, buffer.length), 0);
+        return limit > 0;
+    }
+
+    private PickerException error(String message) {
+        return new PickerException(message + " at byte " + (consumed + position) + " of the json request", null);
+    }
+
+}
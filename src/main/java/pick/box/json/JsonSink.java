@@ -0,0 +1,37 @@
+package pick.box.json;
+
+import java.io.IOException;
+
+/**
+ * <pre>
+ * Receives a response as a stream of json tokens, see PickBox.resolveTo.
+ * JsonWriter is the implementation writing them as json text.
+ * </pre>
+ */
+public interface JsonSink {
+
+    JsonSink beginObject() throws IOException;
+
+    JsonSink endObject() throws IOException;
+
+    JsonSink beginArray() throws IOException;
+
+    JsonSink endArray() throws IOException;
+
+    /**
+     * Name of the next field of the current object
+     */
+    JsonSink name(String name) throws IOException;
+
+    JsonSink nullValue() throws IOException;
+
+    /**
+     * <pre>
+     * Writes a whole value: strings, numbers, booleans, enums, dates, and any Maps,
+     * Collections or objects (their non null public fields) a response provided
+     * itself.
+     * </pre>
+     */
+    JsonSink writeValue(Object value) throws IOException;
+
+}
@@ -0,0 +1,410 @@
+package pick.box.json;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.temporal.TemporalAccessor;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import pick.box.plan.FieldPlan;
+import pick.box.plan.ProjectionPlan;
+
+/**
+ * <pre>
+ * Writes json to a Writer or OutputStream in one pass, without building the json
+ * (or any part of it) as a string first. Memory use is a small fixed buffer plus
+ * one entry per level of nesting, whatever the size of what's written.
+ *
+ * Values can be written one token at a time:
+ *
+ *     json.beginObject();
+ *     json.name("name").value("Pamela");
+ *     json.name("grades").beginArray().value(4).value(3.5).endArray();
+ *     json.endObject();
+ *
+ * or as a whole with writeValue, which takes the output of PickerUtil.mapify,
+ * Maps, Collections, arrays, enums, dates and plain objects (their non null
+ * public fields, or their toString if they have none).
+ *
+ * Strings are escaped as the json spec requires. NaN and infinite numbers aren't
+ * valid json so they're written as strings. Pretty mode puts each field and
+ * element on its own line, indented with tabs.
+ * </pre>
+ */
+public class JsonWriter implements JsonSink, Closeable, Flushable {
+
+    private static final int BUFFER_SIZE = 1024;
+
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_OBJECT = 2;
+    private static final int NONEMPTY_OBJECT = 3;
+    private static final int DANGLING_NAME = 4;
+    private static final int EMPTY_ARRAY = 5;
+    private static final int NONEMPTY_ARRAY = 6;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+
+    private final Writer out;
+    private final boolean pretty;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+
+    private int[] stack = new int[16];
+    private int depth;
+
+
+    /**
+     * Compact json to a writer
+     */
+    public JsonWriter(Writer out) {
+        this(out, false);
+    }
+
+    /**
+     * @param out where the json is written
+     * @param pretty true to write each field and element on its own line
+     */
+    public JsonWriter(Writer out, boolean pretty) {
+        this.out = out;
+        this.pretty = pretty;
+        this.stack[depth++] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * UTF-8 json to an output stream
+     */
+    public JsonWriter(OutputStream out, boolean pretty) {
+        this(new OutputStreamWriter(out, StandardCharsets.UTF_8), pretty);
+    }
+
+
+    @Override
+    public JsonWriter beginObject() throws IOException {
+        beforeValue();
+        push(EMPTY_OBJECT);
+        write('{');
+        return this;
+    }
+
+    @Override
+    public JsonWriter endObject() throws IOException {
+        return close(EMPTY_OBJECT, NONEMPTY_OBJECT, '}');
+    }
+
+    @Override
+    public JsonWriter beginArray() throws IOException {
+        beforeValue();
+        push(EMPTY_ARRAY);
+        write('[');
+        return this;
+    }
+
+    @Override
+    public JsonWriter endArray() throws IOException {
+        return close(EMPTY_ARRAY, NONEMPTY_ARRAY, ']');
+    }
+
+    /**
+     * Writes the name of the next field of the current object
+     */
+    @Override
+    public JsonWriter name(String name) throws IOException {
+        int context = peek();
+        if (context != EMPTY_OBJECT && context != NONEMPTY_OBJECT)
+            throw new IllegalStateException("Field names can only be written in an object");
+
+        if (context == NONEMPTY_OBJECT)
+            write(',');
+        newline();
+        string(name);
+        write(':');
+        if (pretty)
+            write(' ');
+        stack[depth - 1] = DANGLING_NAME;
+        return this;
+    }
+
+    public JsonWriter value(String value) throws IOException {
+        if (value == null)
+            return nullValue();
+        beforeValue();
+        string(value);
+        return this;
+    }
+
+    public JsonWriter value(boolean value) throws IOException {
+        beforeValue();
+        write(value? "true" : "false");
+        return this;
+    }
+
+    public JsonWriter value(long value) throws IOException {
+        beforeValue();
+        write(Long.toString(value));
+        return this;
+    }
+
+    public JsonWriter value(double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value))
+            return value(Double.toString(value));
+        beforeValue();
+        write(Double.toString(value));
+        return this;
+    }
+
+    /**
+     * Floats are written as floats, widening them to double would print 0.1f as 0.10000000149011612
+     */
+    public JsonWriter value(float value) throws IOException {
+        if (Float.isNaN(value) || Float.isInfinite(value))
+            return value(Float.toString(value));
+        beforeValue();
+        write(Float.toString(value));
+        return this;
+    }
+
+    public JsonWriter value(Number value) throws IOException {
+        if (value == null)
+            return nullValue();
+        if (value instanceof Double)
+            return value(value.doubleValue());
+        if (value instanceof Float)
+            return value(value.floatValue());
+        if (value instanceof BigDecimal decimal)
+            return rawNumber(decimal.toString());
+        if (value instanceof BigInteger || value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)
+            return rawNumber(value.toString());
+
+        // other Number types (AtomicLong etc) might not print as json numbers
+        String text = value.toString();
+        try {
+            new BigDecimal(text);
+            return rawNumber(text);
+        } catch (NumberFormatException e) {
+            return value(text);
+        }
+    }
+
+    @Override
+    public JsonWriter nullValue() throws IOException {
+        beforeValue();
+        write("null");
+        return this;
+    }
+
+
+    /**
+     * <pre>
+     * Writes any value: null, strings, numbers, booleans, enums (their name),
+     * dates and temporals (their iso string), Maps (as objects), Collections
+     * and arrays (as arrays), and any other object as an object of its non null
+     * public fields.
+     * </pre>
+     */
+    @Override
+    public JsonWriter writeValue(Object value) throws IOException {
+        if (value == null)
+            return nullValue();
+        if (value instanceof String string)
+            return value(string);
+        if (value instanceof Number number)
+            return value(number);
+        if (value instanceof Boolean bool)
+            return value(bool.booleanValue());
+        if (value instanceof Character character)
+            return value(character.toString());
+        if (value instanceof Enum<?> enumValue)
+            return value(enumValue.name());
+        if (value instanceof Map<?, ?> map)
+            return writeMap(map);
+        if (value instanceof Iterable<?> iterable) {
+            beginArray();
+            for (Object element : iterable)
+                writeValue(element);
+            return endArray();
+        }
+        if (value.getClass().isArray()) {
+            beginArray();
+            int length = Array.getLength(value);
+            for (int i = 0; i < length; i++)
+                writeValue(Array.get(value, i));
+            return endArray();
+        }
+        if (value.getClass() == Date.class)
+            return value(((Date) value).toInstant().toString());
+        if (value instanceof TemporalAccessor || value instanceof Date || value instanceof CharSequence)
+            return value(value.toString());
+
+        return writeFields(value);
+    }
+
+    private JsonWriter writeMap(Map<?, ?> map) throws IOException {
+        beginObject();
+        for (Entry<?, ?> entry : map.entrySet()) {
+            name(String.valueOf(entry.getKey()));
+            writeValue(entry.getValue());
+        }
+        return endObject();
+    }
+
+    private JsonWriter writeFields(Object value) throws IOException {
+        List<FieldPlan> fields = ProjectionPlan.of(value.getClass()).getFields();
+
+        // value types like UUID or URI have no public fields
+        if (fields.isEmpty())
+            return value(value.toString());
+
+        beginObject();
+        for (FieldPlan field : fields) {
+            Object fieldValue = field.getAccessor().get(value);
+            if (fieldValue != null) {
+                name(field.getName());
+                writeValue(fieldValue);
+            }
+        }
+        return endObject();
+    }
+
+
+    /**
+     * Writes the buffered json to the underlying writer and flushes it
+     */
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    /**
+     * Flushes and closes the underlying writer
+     */
+    @Override
+    public void close() throws IOException {
+        flushBuffer();
+        out.close();
+    }
+
+
+    private JsonWriter rawNumber(String text) throws IOException {
+        beforeValue();
+        write(text);
+        return this;
+    }
+
+    private void beforeValue() throws IOException {
+        switch (peek()) {
+            case EMPTY_DOCUMENT:
+                stack[depth - 1] = NONEMPTY_DOCUMENT;
+                break;
+            case NONEMPTY_DOCUMENT:
+                throw new IllegalStateException("Json can only have one top level value");
+            case EMPTY_ARRAY:
+                stack[depth - 1] = NONEMPTY_ARRAY;
+                newline();
+                break;
+            case NONEMPTY_ARRAY:
+                write(',');
+                newline();
+                break;
+            case DANGLING_NAME:
+                stack[depth - 1] = NONEMPTY_OBJECT;
+                break;
+            default:
+                throw new IllegalStateException("A field name must be written before a value in an object");
+        }
+    }
+
+    private JsonWriter close(int empty, int nonempty, char bracket) throws IOException {
+        int context = peek();
+        if (context != empty && context != nonempty)
+            throw new IllegalStateException("Nesting problem, can't write '" + bracket + "' here");
+
+        depth--;
+        if (context == nonempty)
+            newline();
+        write(bracket);
+        return this;
+    }
+
+    private void push(int context) {
+        if (depth == stack.length)
+            stack = Arrays.copyOf(stack, depth * 2);
+        stack[depth++] = context;
+    }
+
+    private int peek() {
+        return stack[depth - 1];
+    }
+
+    private void newline() throws IOException {
+        if (!pretty)
+            return;
+        write('\n');
+        for (int i = 1; i < depth; i++)
+            write('\t');
+    }
+
+    private void string(String value) throws IOException {
+        write('"');
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': write('\\'); write('"'); break;
+                case '\\': write('\\'); write('\\'); break;
+                case '\n': write('\\'); write('n'); break;
+                case '\r': write('\\'); write('r'); break;
+                case '\t': write('\\'); write('t'); break;
+                case '\b': write('\\'); write('b'); break;
+                case '\f': write('\\'); write('f'); break;
+                default:
+                    // control characters, and the line separators javascript doesn't allow in strings
+                    if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                        write('\\');
+                        write('u');
+                        write(HEX[(c >> 12) & 0xf]);
+                        write(HEX[(c >> 8) & 0xf]);
+                        write(HEX[(c >> 4) & 0xf]);
+                        write(HEX[c & 0xf]);
+                    }
+                    else {
+                        write(c);
+                    }
+            }
+        }
+        write('"');
+    }
+
+    private void write(String text) throws IOException {
+        int length = text.length();
+        for (int i = 0; i < length; i++)
+            write(text.charAt(i));
+    }
+
+    private void write(char c) throws IOException {
+        if (position == BUFFER_SIZE)
+            flushBuffer();
+        buffer[position++] = c;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+package pick.box.plan;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import pick.box.Resolver;
+import pick.box.types.TypeKey;
+
+/**
+ * <pre>
+ * A ProjectionPlan tied to the resolvers of one PickBox.
+ *
+ * Fields without a resolver come first, then fields with one, so resolvers are
+ * given the most complete parent possible. Each field also carries the resolver
+ * PickBox would call to fulfill it (or null if there isn't one).
+ * </pre>
+ */
+public class BoundPlan {
+
+    private final ProjectionPlan plan;
+    private final FieldPlan[] fields;
+    private final Resolver<?, ?, ?>[] resolvers;
+
+
+    public BoundPlan(ProjectionPlan plan, Map<TypeKey, Resolver<?, ?, ?>> resolvers) {
+        this.plan = plan;
+
+        List<FieldPlan> nonBlockingFields = new ArrayList<>();
+        List<FieldPlan> resolverFields = new ArrayList<>();
+        for (FieldPlan field : plan.getFields()) {
+            if (resolvers.containsKey(field.getResolverType()))
+                resolverFields.add(field);
+            else
+                nonBlockingFields.add(field);
+        }
+
+        List<FieldPlan> ordered = new ArrayList<>(nonBlockingFields);
+        ordered.addAll(resolverFields);
+        this.fields = ordered.toArray(new FieldPlan[0]);
+
+        this.resolvers = new Resolver<?, ?, ?>[this.fields.length];
+        for (int i = 0; i < this.fields.length; i++) {
+            FieldPlan field = this.fields[i];
+            if (field.getKind() == FieldKind.LIST)
+                this.resolvers[i] = resolvers.get(field.getResolverType());
+            else if (field.getKind() == FieldKind.OBJECT)
+                this.resolvers[i] = resolvers.get(field.getTypeResolverType());
+        }
+    }
+
+
+    public ProjectionPlan getPlan() {
+        return plan;
+    }
+
+    /**
+     * Fields in the order they should be projected
+     */
+    public FieldPlan[] getFields() {
+        return fields;
+    }
+
+    /**
+     * The resolver for the field at the same position in {@link #getFields()}, or null
+     */
+    public Resolver<?, ?, ?> getResolver(int position) {
+        return resolvers[position];
+    }
+
+}
@@ -0,0 +1,15 @@
+package pick.box.plan;
+
+/**
+ * How PickBox treats a field when it projects a response.
+ */
+public enum FieldKind {
+    /** a List, elements are fulfilled by a resolver for the generic list type */
+    LIST,
+    /** a Map, copied from the response */
+    MAP,
+    /** a basic java type (see TypeUtil.isBasicJavaType) or an enum */
+    BASIC,
+    /** any other object, fulfilled by a resolver for the field's class */
+    OBJECT
+}
@@ -0,0 +1,124 @@
+package pick.box.plan;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+
+import pick.box.access.FieldAccessor;
+import pick.box.access.FieldAccessors;
+import pick.box.types.TypeKey;
+import pick.box.types.TypeUtil;
+
+/**
+ * <pre>
+ * Everything PickBox needs to know about one public field of a request class,
+ * worked out once when the ProjectionPlan for the class is built.
+ *
+ * Instances are immutable and shared between threads.
+ * </pre>
+ */
+public class FieldPlan {
+
+    private final Field field;
+    private final int index;
+    private final FieldKind kind;
+    private final TypeKey resolverType;
+    private final TypeKey typeResolverType;
+    private final FieldAccessor accessor;
+    private final Class<?> elementType;
+
+
+    FieldPlan(Field field, int index, FieldAccessor generated) {
+        this.field = field;
+        this.index = index;
+        this.kind = kindOf(field.getType());
+        this.resolverType = TypeKey.of(field.getGenericType());
+        this.typeResolverType = TypeKey.of(field.getType());
+        this.accessor = (generated != null)? generated : FieldAccessors.create(field);
+        this.elementType = elementTypeOf(field);
+    }
+
+
+    private static FieldKind kindOf(Class<?> type) {
+        if (List.class.isAssignableFrom(type))
+            return FieldKind.LIST;
+        if (Map.class.isAssignableFrom(type))
+            return FieldKind.MAP;
+        if (TypeUtil.isBasicJavaType(type) || type.isEnum())
+            return FieldKind.BASIC;
+        return FieldKind.OBJECT;
+    }
+
+
+    private static Class<?> elementTypeOf(Field field) {
+        if (field.getGenericType() instanceof ParameterizedType parameterizedType) {
+            Type[] arguments = parameterizedType.getActualTypeArguments();
+            Type last = arguments[arguments.length - 1];
+            if (last instanceof Class<?> type)
+                return type;
+            if (last instanceof ParameterizedType parameterizedLast)
+                return (Class<?>) parameterizedLast.getRawType();
+        }
+        return Object.class;
+    }
+
+
+    public Field getField() {
+        return field;
+    }
+
+    public String getName() {
+        return field.getName();
+    }
+
+    public Class<?> getType() {
+        return field.getType();
+    }
+
+    public boolean isPrimitive() {
+        return field.getType().isPrimitive();
+    }
+
+    /**
+     * Position of this field in {@link ProjectionPlan#getFields()}
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Declared element type for lists (value type for maps), Object if it isn't known
+     */
+    public Class<?> getElementType() {
+        return elementType;
+    }
+
+    public FieldKind getKind() {
+        return kind;
+    }
+
+    /**
+     * The generic type of the field, the key of the resolver for lists
+     */
+    public TypeKey getResolverType() {
+        return resolverType;
+    }
+
+    /**
+     * The raw class of the field, the key of the resolver for objects
+     */
+    public TypeKey getTypeResolverType() {
+        return typeResolverType;
+    }
+
+    /**
+     * Reads and writes this field. This is the generated accessor for @Pickable classes, 
+     * otherwise one made with the FieldAccessorFactory set when the plan was built
+     */
+    public FieldAccessor getAccessor() {
+        return accessor;
+    }
+
+}
@@ -0,0 +1,137 @@
+package pick.box.plan;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import pick.box.Resolver;
+import pick.box.generate.Projector;
+import pick.box.query.SelectionSet;
+
+/**
+ * <pre>
+ * One object of a compiled QueryPlan: which fields of the class were requested,
+ * the resolvers that fulfill them and the nodes for the objects nested under them.
+ *
+ * Nodes are immutable and shared by every request with the same shape.
+ * </pre>
+ */
+public class PlanNode {
+
+    /**
+     * Child of a list whose elements are basic java types or enums, the elements are used as they are
+     */
+    public static final PlanNode VALUE = new PlanNode("", null, new FieldPlan[0], new Resolver<?, ?, ?>[0], new PlanNode[0], new FieldPlan[0], new FieldPlan[0], null);
+
+
+    private final String path;
+    private final ProjectionPlan plan;
+    private final FieldPlan[] fields;
+    private final Resolver<?, ?, ?>[] resolvers;
+    private final PlanNode[] children;
+    private final FieldPlan[] unselected;
+    private final FieldPlan[] unselectedPrimitives;
+    private final Projector projector;
+    private final SelectionSet selection;
+
+
+    PlanNode(String path, ProjectionPlan plan, FieldPlan[] fields, Resolver<?, ?, ?>[] resolvers, PlanNode[] children, FieldPlan[] unselected, FieldPlan[] unselectedPrimitives, Projector projector) {
+        this.path = path;
+        this.plan = plan;
+        this.fields = fields;
+        this.resolvers = resolvers;
+        this.children = children;
+        this.unselected = unselected;
+        this.unselectedPrimitives = unselectedPrimitives;
+        this.projector = projector;
+        this.selection = buildSelection(fields, children);
+    }
+
+    private static SelectionSet buildSelection(FieldPlan[] fields, PlanNode[] children) {
+        if (fields.length == 0)
+            return SelectionSet.EMPTY;
+
+        Map<String, SelectionSet> selected = new LinkedHashMap<>();
+        for (int i = 0; i < fields.length; i++)
+            selected.put(fields[i].getName(), (children[i] == null)? SelectionSet.EMPTY : children[i].selection);
+        return new SelectionSet(selected);
+    }
+
+
+    /**
+     * Where this node is in the response, eg 'University.classes.classDays'
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Path of the requested field at the given position
+     */
+    public String getFieldPath(int position) {
+        return path + "." + fields[position].getName();
+    }
+
+    public ProjectionPlan getPlan() {
+        return plan;
+    }
+
+    /**
+     * Requested fields, fields without a resolver first
+     */
+    public FieldPlan[] getFields() {
+        return fields;
+    }
+
+    /**
+     * Resolver for the requested field at the same position, or null
+     */
+    public Resolver<?, ?, ?> getResolver(int position) {
+        return resolvers[position];
+    }
+
+    /**
+     * <pre>
+     * Node for the objects under the requested field at the same position. Null for
+     * basic and map fields, and for lists the request didn't give an example element for.
+     * </pre>
+     */
+    public PlanNode getChild(int position) {
+        return children[position];
+    }
+
+    /**
+     * Fields that weren't requested and need to be nulled out (primitive fields aren't included)
+     */
+    public FieldPlan[] getUnselected() {
+        return unselected;
+    }
+
+    /**
+     * Primitive fields that weren't requested, they keep the class's default value
+     */
+    public FieldPlan[] getUnselectedPrimitives() {
+        return unselectedPrimitives;
+    }
+
+    /**
+     * The requested fields of this node and everything nested under them
+     */
+    public SelectionSet getSelection() {
+        return selection;
+    }
+
+    /**
+     * Selection of the objects under the requested field at the same position
+     */
+    public SelectionSet getSelection(int position) {
+        return (children[position] == null)? SelectionSet.EMPTY : children[position].selection;
+    }
+
+    /**
+     * Generated projector for this node's selection, or null if the GENERATED engine isn't used
+     */
+    public Projector getProjector() {
+        return projector;
+    }
+
+}
@@ -0,0 +1,161 @@
+package pick.box.plan;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import pick.box.access.FieldAccessor;
+import pick.box.exception.PickerException;
+import pick.box.generate.PickableSupport;
+import pick.box.generate.PickableSupports;
+
+/**
+ * <pre>
+ * The reflective information about a request class PickBox needs to project
+ * a response (the public fields and how each one is handled).
+ *
+ * Plans are built once per class and kept in a ClassValue, so every PickBox
+ * shares them and reading them from many threads is safe.
+ * </pre>
+ */
+public class ProjectionPlan {
+
+    private static final ClassValue<ProjectionPlan> PLANS = new ClassValue<>() {
+        @Override
+        protected ProjectionPlan computeValue(Class<?> type) {
+            return new ProjectionPlan(type);
+        }
+    };
+
+
+    private final Class<?> type;
+    private final List<FieldPlan> fields;
+    private final List<FieldPlan> sortedFields;
+    private final Map<String, FieldPlan> fieldsByName;
+    private final PickableSupport<?> support;
+    private final Constructor<?> constructor;
+    private volatile Object defaultInstance;
+
+
+    private ProjectionPlan(Class<?> type) {
+        this.type = type;
+        this.support = PickableSupports.find(type);
+        this.constructor = findNoArgsConstructor(type);
+
+        Field[] publicFields = type.getFields();
+        List<FieldPlan> fieldPlans = new ArrayList<>(publicFields.length);
+        Map<String, FieldPlan> byName = new HashMap<>();
+        for (int i = 0; i < publicFields.length; i++) {
+            FieldAccessor generated = (support != null)? support.accessor(publicFields[i].getName()) : null;
+            FieldPlan fieldPlan = new FieldPlan(publicFields[i], i, generated);
+            fieldPlans.add(fieldPlan);
+            byName.putIfAbsent(fieldPlan.getName(), fieldPlan);
+        }
+        this.fields = Collections.unmodifiableList(fieldPlans);
+        this.fieldsByName = byName;
+
+        List<FieldPlan> sorted = new ArrayList<>(fieldPlans);
+        sorted.sort(
+            Comparator.comparing(FieldPlan::getName)
+                .thenComparing(fieldPlan -> fieldPlan.getField().getDeclaringClass().getName())
+        );
+        this.sortedFields = Collections.unmodifiableList(sorted);
+    }
+
+
+    private static Constructor<?> findNoArgsConstructor(Class<?> type) {
+        try {
+            Constructor<?> noArgs = type.getDeclaredConstructor();
+            noArgs.setAccessible(true);
+            return noArgs;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+
+    /**
+     * Gets the plan for a class, building it the first time the class is seen
+     *
+     * @param type request class
+     * @return the shared plan for the class
+     */
+    public static ProjectionPlan of(Class<?> type) {
+        return PLANS.get(type);
+    }
+
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    public List<FieldPlan> getFields() {
+        return fields;
+    }
+
+    /**
+     * <pre>
+     * The fields sorted by name (then by the class declaring them). Unlike getFields,
+     * which is in the order the JVM lists them, this order is the same on every JVM.
+     * </pre>
+     */
+    public List<FieldPlan> getSortedFields() {
+        return sortedFields;
+    }
+
+    /**
+     * The public field with the name, null if there isn't one
+     */
+    public FieldPlan getField(String name) {
+        return fieldsByName.get(name);
+    }
+
+    /**
+     * The class generated for this class by the @Pickable annotation processor, or null
+     */
+    public PickableSupport<?> getSupport() {
+        return support;
+    }
+
+    /**
+     * Makes a new instance of the class with its no args constructor
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T newInstance() {
+        if (support != null) {
+            Object instance = support.newInstance();
+            if (instance != null)
+                return (T) instance;
+        }
+
+        if (constructor == null)
+            throw new PickerException("Missing default constructor in class " + type.getName(), null);
+
+        try {
+            return (T) constructor.newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new PickerException("Missing default constructor in class " + type.getName(), e);
+        }
+    }
+
+    /**
+     * <pre>
+     * A shared instance made with the no args constructor, for reading the default
+     * values of fields. It must not be changed.
+     * </pre>
+     */
+    public Object getDefaultInstance() {
+        Object instance = defaultInstance;
+        if (instance == null) {
+            instance = newInstance();
+            defaultInstance = instance;
+        }
+        return instance;
+    }
+
+}
@@ -0,0 +1,83 @@
+package pick.box.plan;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import pick.box.Resolver;
+
+/**
+ * <pre>
+ * A request shape compiled once into everything PickBox needs to execute it:
+ * the root resolver and a tree of PlanNodes saying which resolvers run, in what
+ * order, and which fields are copied.
+ *
+ * Query plans are immutable and are cached by PickBox by their fingerprint.
+ * </pre>
+ */
+public class QueryPlan {
+
+    private final String fingerprint;
+    private final Resolver<?, ?, ?> rootResolver;
+    private final PlanNode root;
+    private volatile String hash;
+
+
+    QueryPlan(String fingerprint, Resolver<?, ?, ?> rootResolver, PlanNode root) {
+        this.fingerprint = fingerprint;
+        this.rootResolver = rootResolver;
+        this.root = root;
+    }
+
+
+    /**
+     * The request shape this plan was compiled from, see QueryPlanCompiler.fingerprint
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * <pre>
+     * SHA-256 of the fingerprint as lowercase hex. It only depends on the request
+     * shape, so it's the same between runs and between PickBoxes, and is what 
+     * persisted queries are called by (see PickBox.registerQuery).
+     * </pre>
+     */
+    public String getHash() {
+        String value = hash;
+        if (value == null) {
+            value = hashOf(fingerprint);
+            hash = value;
+        }
+        return value;
+    }
+
+    /**
+     * SHA-256 of a fingerprint as lowercase hex
+     */
+    public static String hashOf(String fingerprint) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(fingerprint.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest)
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // every java platform has SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Resolver for the request class, or null if there isn't one
+     */
+    public Resolver<?, ?, ?> getRootResolver() {
+        return rootResolver;
+    }
+
+    public PlanNode getRoot() {
+        return root;
+    }
+
+}
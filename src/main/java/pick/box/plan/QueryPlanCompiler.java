@@ -0,0 +1,149 @@
+package pick.box.plan;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import pick.box.Resolver;
+import pick.box.generate.GeneratedProjectors;
+import pick.box.generate.Projector;
+import pick.box.query.SelectionSet;
+import pick.box.types.TypeKey;
+
+/**
+ * <pre>
+ * Turns SelectionMasks (of request objects, or of a class and a SelectionSet)
+ * into QueryPlans.
+ *
+ * A plan's fingerprint is the request's shape written as a string: the request
+ * class followed by the requested fields, with the fields requested on nested
+ * objects and list elements in braces. eg
+ *
+ *     pick.box.domain.Parent{children{age,name},name}
+ *
+ * The format is
+ *
+ *     fingerprint = class-name fields
+ *     fields      = '{' [ field { ',' field } ] '}'
+ *     field       = name [ ':' class-name ] [ fields | '[]' ]
+ *
+ * with class names as given by Class.getName. The fields of each object are 
+ * sorted by name (see ProjectionPlan.getSortedFields), so a selection and a 
+ * request object asking for the same fields have the same fingerprint, and it 
+ * doesn't depend on the order the JVM lists a class's fields in. When a nested 
+ * request object isn't of the declared type its class is added after the colon 
+ * (children:my.SpecialChild{...}), and a list with no example element is 
+ * written with empty brackets (children[]). Fields of basic values, maps and 
+ * lists of basic values are just their name. There's no whitespace.
+ *
+ * Two requests with the same mask always compile to the same plan.
+ * </pre>
+ */
+public class QueryPlanCompiler {
+
+    private final Function<Class<?>, BoundPlan> binder;
+    private final Map<TypeKey, Resolver<?, ?, ?>> resolvers;
+    private final boolean generateProjectors;
+
+
+    /**
+     * @param binder gets the BoundPlan of a class for the PickBox the plans are for
+     * @param resolvers the PickBox's resolvers by return type
+     * @param generateProjectors true to give nodes a generated Projector (the GENERATED engine)
+     */
+    public QueryPlanCompiler(Function<Class<?>, BoundPlan> binder, Map<TypeKey, Resolver<?, ?, ?>> resolvers, boolean generateProjectors) {
+        this.binder = binder;
+        this.resolvers = resolvers;
+        this.generateProjectors = generateProjectors;
+    }
+
+
+    /**
+     * Writes the shape of a request object, see the class doc for the format
+     */
+    public static String fingerprint(Object request) {
+        return SelectionMask.of(request).toString();
+    }
+
+    /**
+     * Writes the shape of a selection of a class, see the class doc for the format
+     */
+    public static String fingerprint(Class<?> type, SelectionSet selection) {
+        return SelectionMask.of(type, selection).toString();
+    }
+
+
+    /**
+     * Compiles the plan for a request object, only its shape is used
+     */
+    public QueryPlan compile(Object request) {
+        return compile(SelectionMask.of(request));
+    }
+
+    /**
+     * Compiles the plan for a request shape
+     */
+    public QueryPlan compile(SelectionMask mask) {
+        Resolver<?, ?, ?> rootResolver = resolvers.get(TypeKey.of(mask.getType()));
+        return new QueryPlan(mask.toString(), rootResolver, compileNode(mask, mask.getType().getSimpleName()));
+    }
+
+    private PlanNode compileNode(SelectionMask mask, String path) {
+        BoundPlan binding = binder.apply(mask.getType());
+        FieldPlan[] boundFields = binding.getFields();
+
+        List<FieldPlan> fields = new ArrayList<>();
+        List<Resolver<?, ?, ?>> fieldResolvers = new ArrayList<>();
+        List<PlanNode> children = new ArrayList<>();
+        List<FieldPlan> unselected = new ArrayList<>();
+        List<FieldPlan> unselectedPrimitives = new ArrayList<>();
+        long selectedMask = 0;
+
+        for (int i = 0; i < boundFields.length; i++) {
+            FieldPlan field = boundFields[i];
+            int index = field.getIndex();
+
+            if (!mask.isSelected(index)) {
+                // primitives can't be nulled, unselected ones keep their default
+                if (field.isPrimitive())
+                    unselectedPrimitives.add(field);
+                else
+                    unselected.add(field);
+                continue;
+            }
+
+            PlanNode child = null;
+            if (field.getKind() == FieldKind.LIST || field.getKind() == FieldKind.OBJECT) {
+                SelectionMask childMask = mask.getChild(index);
+                if (childMask == null)
+                    child = PlanNode.VALUE;
+                else if (childMask != SelectionMask.NO_ELEMENT)
+                    child = compileNode(childMask, path + "." + field.getName());
+            }
+
+            fields.add(field);
+            fieldResolvers.add(binding.getResolver(i));
+            children.add(child);
+            if (index < Long.SIZE)
+                selectedMask |= 1L << index;
+        }
+
+        ProjectionPlan plan = binding.getPlan();
+        Projector projector = (generateProjectors && plan.getFields().size() <= Long.SIZE)?
+            GeneratedProjectors.get(plan, selectedMask) :
+            null;
+
+        return new PlanNode(
+            path,
+            plan,
+            fields.toArray(new FieldPlan[0]),
+            fieldResolvers.toArray(new Resolver<?, ?, ?>[0]),
+            children.toArray(new PlanNode[0]),
+            unselected.toArray(new FieldPlan[0]),
+            unselectedPrimitives.toArray(new FieldPlan[0]),
+            projector
+        );
+    }
+
+}
@@ -0,0 +1,248 @@
+package pick.box.plan;
+
+import java.util.Arrays;
+import java.util.List;
+
+import pick.box.access.FieldAccessor;
+import pick.box.exception.PickerException;
+import pick.box.query.SelectionSet;
+import pick.box.types.TypeUtil;
+
+/**
+ * <pre>
+ * The shape of a request as bits: one bit per field of the class's ProjectionPlan
+ * (by field index) saying if it's selected, and the masks of the objects nested
+ * under the selected object and list fields. PickBox caches query plans by mask,
+ * so a request only has to be turned into a mask to find its plan.
+ *
+ * Masks made from request objects always select primitive fields, since a request
+ * object can't leave them out. Masks made from a SelectionSet only select the
+ * primitive fields it names.
+ *
+ * Masks are immutable and cheap to compare.
+ * </pre>
+ */
+public final class SelectionMask {
+
+    /**
+     * Child of a list field the request gave no example element for
+     */
+    public static final SelectionMask NO_ELEMENT = new SelectionMask(Void.class, new long[0], null);
+
+
+    private final Class<?> type;
+    private final long[] bits;
+    // by field index, null if nothing is nested under the field
+    private final SelectionMask[] children;
+    private final int hash;
+
+
+    private SelectionMask(Class<?> type, long[] bits, SelectionMask[] children) {
+        this.type = type;
+        this.bits = bits;
+        this.children = children;
+        this.hash = 31 * (31 * type.hashCode() + Arrays.hashCode(bits)) + Arrays.hashCode(children);
+    }
+
+
+    /**
+     * <pre>
+     * The mask of a request object: its non null fields (and every primitive field)
+     * are selected. The first element of a list is the example for the rest, and
+     * nested objects of a subclass of the field's type are masked as that subclass.
+     * </pre>
+     */
+    public static SelectionMask of(Object request) {
+        Class<?> type = request.getClass();
+        List<FieldPlan> fields = ProjectionPlan.of(type).getFields();
+        long[] bits = new long[words(fields.size())];
+        SelectionMask[] children = null;
+
+        for (FieldPlan field : fields) {
+            FieldAccessor accessor = field.getAccessor();
+            if (accessor.isNull(request))
+                continue;
+            set(bits, field.getIndex());
+
+            SelectionMask child = null;
+            if (field.getKind() == FieldKind.LIST) {
+                Object template = listTemplate(accessor.get(request));
+                child = (template == null)? NO_ELEMENT : nested(template);
+            }
+            else if (field.getKind() == FieldKind.OBJECT) {
+                child = nested(accessor.get(request));
+            }
+
+            if (child != null) {
+                if (children == null)
+                    children = new SelectionMask[fields.size()];
+                children[field.getIndex()] = child;
+            }
+        }
+
+        return new SelectionMask(type, bits, children);
+    }
+
+    private static SelectionMask nested(Object template) {
+        return (isValue(template.getClass()))? null : of(template);
+    }
+
+    /**
+     * <pre>
+     * The mask of a selection of a class, checking every selected field exists and
+     * that lists of objects have a nested selection. An object field selected with
+     * nothing under it is the object with none of its fields selected, like an empty
+     * object in a request object.
+     * </pre>
+     * @throws PickerException if the selection doesn't match the class
+     */
+    public static SelectionMask of(Class<?> type, SelectionSet selection) {
+        if (selection.isEmpty())
+            throw new PickerException("Selection of " + type.getName() + " has no fields", null);
+        return of(type, selection, type.getSimpleName());
+    }
+
+    private static SelectionMask of(Class<?> type, SelectionSet selection, String path) {
+        ProjectionPlan plan = ProjectionPlan.of(type);
+        List<FieldPlan> fields = plan.getFields();
+        long[] bits = new long[words(fields.size())];
+        SelectionMask[] children = null;
+
+        for (String name : selection.getFieldNames()) {
+            FieldPlan field = plan.getField(name);
+            if (field == null)
+                throw new PickerException("Class " + type.getName() + " has no public field '" + name + "' (selected at " + path + ")", null);
+            set(bits, field.getIndex());
+
+            SelectionSet nested = selection.get(name);
+            String fieldPath = path + "." + name;
+            SelectionMask child = null;
+            if (field.getKind() == FieldKind.LIST)
+                child = nested(field.getElementType(), nested, fieldPath, true);
+            else if (field.getKind() == FieldKind.OBJECT)
+                child = nested(field.getType(), nested, fieldPath, false);
+            else if (!nested.isEmpty())
+                throw new PickerException("Field " + fieldPath + " has no fields to select", null);
+
+            if (child != null) {
+                if (children == null)
+                    children = new SelectionMask[fields.size()];
+                children[field.getIndex()] = child;
+            }
+        }
+
+        return new SelectionMask(type, bits, children);
+    }
+
+    private static SelectionMask nested(Class<?> type, SelectionSet nested, String path, boolean needsSelection) {
+        if (isValue(type)) {
+            if (!nested.isEmpty())
+                throw new PickerException("Field " + path + " of type " + type.getName() + " has no fields to select", null);
+            return null;
+        }
+        if (needsSelection && nested.isEmpty())
+            throw new PickerException("Field " + path + " needs a selection of the fields of " + type.getName(), null);
+        return of(type, nested, path);
+    }
+
+
+    /**
+     * The class of the object this mask is for
+     */
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * True if the field at the index (see FieldPlan.getIndex) is selected
+     */
+    public boolean isSelected(int fieldIndex) {
+        int word = fieldIndex >>> 6;
+        return word < bits.length && (bits[word] & (1L << fieldIndex)) != 0;
+    }
+
+    /**
+     * <pre>
+     * Mask of the object (or list elements) under the field at the index. Null for
+     * fields with nothing nested under them (including lists of basic values),
+     * NO_ELEMENT for lists without an example element.
+     * </pre>
+     */
+    public SelectionMask getChild(int fieldIndex) {
+        return (children == null)? null : children[fieldIndex];
+    }
+
+
+    private static int words(int fieldCount) {
+        return (fieldCount + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    private static void set(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    private static Object listTemplate(Object requestList) {
+        List<?> list = TypeUtil.safeCast(requestList, List.class);
+        return (list.isEmpty())? null : list.get(0);
+    }
+
+    static boolean isValue(Class<?> type) {
+        return TypeUtil.isBasicJavaType(type) || type.isEnum();
+    }
+
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other)
+            return true;
+        if (!(other instanceof SelectionMask mask))
+            return false;
+        return hash == mask.hash
+            && type == mask.type
+            && Arrays.equals(bits, mask.bits)
+            && Arrays.equals(children, mask.children);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * The mask as a query plan fingerprint, see QueryPlanCompiler
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(type.getName());
+        appendFields(builder);
+        return builder.toString();
+    }
+
+    private void appendFields(StringBuilder builder) {
+        builder.append('{');
+        boolean first = true;
+        for (FieldPlan field : ProjectionPlan.of(type).getSortedFields()) {
+            if (!isSelected(field.getIndex()))
+                continue;
+
+            if (!first)
+                builder.append(',');
+            first = false;
+            builder.append(field.getName());
+
+            SelectionMask child = getChild(field.getIndex());
+            if (child == NO_ELEMENT) {
+                builder.append("[]");
+            }
+            else if (child != null) {
+                Class<?> declaredType = (field.getKind() == FieldKind.LIST)? field.getElementType() : field.getType();
+                if (child.type != declaredType)
+                    builder.append(':').append(child.type.getName());
+                child.appendFields(builder);
+            }
+        }
+        builder.append('}');
+    }
+
+}
@@ -0,0 +1,82 @@
+package pick.box.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+import pick.box.annotation.Pickable;
+import pick.box.generate.PickableSupports;
+
+/**
+ * <pre>
+ * Generates a PickableSupport class for every class annotated with @Pickable.
+ *
+ * For a class 'com.example.Order' this writes 'com.example.Order_PickBox' with
+ * direct field access for the public fields, a mapifier and a default object
+ * builder. See PickableSourceWriter for what gets generated.
+ * </pre>
+ */
+@SupportedAnnotationTypes("pick.box.annotation.Pickable")
+public class PickableProcessor extends AbstractProcessor {
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(Pickable.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@Pickable can only be used on classes");
+                continue;
+            }
+            if (element.getModifiers().contains(Modifier.PRIVATE)) {
+                error(element, "@Pickable classes can't be private");
+                continue;
+            }
+
+            TypeElement type = (TypeElement) element;
+            try {
+                write(type);
+            } catch (IOException e) {
+                error(element, "Couldn't write PickBox support class: " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+
+    private void write(TypeElement type) throws IOException {
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        String simpleName = (packageName.isEmpty())? binaryName : binaryName.substring(packageName.length() + 1);
+        String supportName = simpleName + PickableSupports.SUFFIX;
+
+        PickableSourceWriter sourceWriter = new PickableSourceWriter(processingEnv, type, packageName, supportName);
+        String source = sourceWriter.write();
+
+        String qualifiedName = (packageName.isEmpty())? supportName : packageName + "." + supportName;
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, type);
+        try (Writer writer = file.openWriter()) {
+            writer.write(source);
+        }
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+}
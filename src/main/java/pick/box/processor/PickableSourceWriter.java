@@ -0,0 +1,362 @@
+package pick.box.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+/**
+ * <pre>
+ * Writes the source of the PickableSupport class for one @Pickable class.
+ *
+ * Field kinds and default values follow the same rules as FieldPlan,
+ * PickerUtil.mapify and TypeUtil.buildDefaultForNonBasicClass, so the generated
+ * code gives the same results as the reflective versions. Anything those rules
+ * can't express in plain java (private or final fields, unusual collection types...)
+ * is left to the reflective versions.
+ * </pre>
+ */
+class PickableSourceWriter {
+
+    private static final String ACCESSOR = "pick.box.access.FieldAccessor";
+    private static final String PICKER_UTIL = "pick.box.PickerUtil";
+    private static final String TYPE_UTIL = "pick.box.types.TypeUtil";
+
+    private final Types types;
+    private final Elements elements;
+    private final TypeElement type;
+    private final String packageName;
+    private final String supportName;
+    private final String typeName;
+
+    private final StringBuilder out = new StringBuilder();
+
+
+    PickableSourceWriter(ProcessingEnvironment processingEnv, TypeElement type, String packageName, String supportName) {
+        this.types = processingEnv.getTypeUtils();
+        this.elements = processingEnv.getElementUtils();
+        this.type = type;
+        this.packageName = packageName;
+        this.supportName = supportName;
+        this.typeName = erasure(type.asType());
+    }
+
+
+    String write() {
+        if (!packageName.isEmpty())
+            line("package " + packageName + ";").line("");
+
+        line("@javax.annotation.processing.Generated(\"pick.box.processor.PickableProcessor\")");
+        line("@SuppressWarnings({\"unchecked\", \"rawtypes\"})");
+        line("public final class " + supportName + " implements pick.box.generate.PickableSupport<" + typeName + "> {");
+        line("");
+        writeNewInstance();
+        writeAccessor();
+        writeMapify();
+        writeBuildDefault();
+        line("}");
+
+        return out.toString();
+    }
+
+
+    private void writeNewInstance() {
+        line("    @Override");
+        line("    public " + typeName + " newInstance() {");
+        line("        return " + (canInstantiate()? "new " + typeName + "()" : "null") + ";");
+        line("    }");
+        line("");
+    }
+
+    private void writeAccessor() {
+        line("    @Override");
+        line("    public " + ACCESSOR + " accessor(String fieldName) {");
+        line("        switch (fieldName) {");
+        for (VariableElement field : publicFields()) {
+            if (field.getModifiers().contains(Modifier.STATIC) || field.getModifiers().contains(Modifier.FINAL))
+                continue;
+
+            String name = field.getSimpleName().toString();
+            TypeMirror fieldType = field.asType();
+            boolean primitive = fieldType.getKind().isPrimitive();
+            String target = "((" + typeName + ") target)." + name;
+
+            line("            case \"" + name + "\": return new " + ACCESSOR + "() {");
+            line("                public Object get(Object target) { return " + target + "; }");
+            line("                public void set(Object target, Object value) { " + target + " = (" + boxedErasure(fieldType) + ") value; }");
+            line("                public void copy(Object from, Object to) { ((" + typeName + ") to)." + name + " = ((" + typeName + ") from)." + name + "; }");
+            line("                public boolean isNull(Object target) { return " + (primitive? "false" : target + " == null") + "; }");
+            line("            };");
+        }
+        line("            default: return null;");
+        line("        }");
+        line("    }");
+        line("");
+    }
+
+    private void writeMapify() {
+        line("    @Override");
+        line("    public java.util.Map<String, Object> mapify(" + typeName + " object) {");
+        line("        java.util.Map<String, Object> mapped = new java.util.HashMap<>();");
+        for (VariableElement field : publicFields()) {
+            String name = field.getSimpleName().toString();
+            TypeMirror fieldType = field.asType();
+            String value = (field.getModifiers().contains(Modifier.STATIC))? typeName + "." + name : "object." + name;
+
+            String mappedValue;
+            if (isList(fieldType))
+                mappedValue = PICKER_UTIL + ".mapifyList((java.util.List<?>) " + value + ")";
+            else if (isMap(fieldType))
+                mappedValue = PICKER_UTIL + ".mapifyMap((java.util.Map<?, ?>) " + value + ")";
+            else if (isBasicJavaType(fieldType) || isEnum(fieldType))
+                mappedValue = value;
+            else
+                mappedValue = PICKER_UTIL + ".mapify(" + value + ")";
+
+            if (fieldType.getKind().isPrimitive())
+                line("        mapped.put(\"" + name + "\", " + mappedValue + ");");
+            else
+                line("        if (" + value + " != null) mapped.put(\"" + name + "\", " + mappedValue + ");");
+        }
+        line("        return mapped;");
+        line("    }");
+        line("");
+    }
+
+    private void writeBuildDefault() {
+        List<String> assignments = new ArrayList<>();
+        boolean supported = canInstantiate();
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            if (!supported)
+                break;
+
+            Set<Modifier> modifiers = field.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.FINAL) || modifiers.contains(Modifier.STATIC)) {
+                supported = false;
+                break;
+            }
+
+            TypeMirror fieldType = field.asType();
+            String value = (isBasicType(fieldType))? javaDefault(fieldType) : nonBasicDefault(fieldType);
+            if (value == null) {
+                supported = false;
+                break;
+            }
+            assignments.add("        instance." + field.getSimpleName() + " = " + value + ";");
+        }
+
+        line("    @Override");
+        line("    public " + typeName + " buildDefault() {");
+        if (supported) {
+            line("        " + typeName + " instance = new " + typeName + "();");
+            for (String assignment : assignments)
+                line(assignment);
+            line("        return instance;");
+        }
+        else {
+            line("        return null;");
+        }
+        line("    }");
+        line("");
+    }
+
+
+    // same rules as TypeUtil.buildDefaultForJavaClass
+    private String javaDefault(TypeMirror t) {
+        switch (t.getKind()) {
+            case INT: return "0";
+            case LONG: return "0L";
+            case DOUBLE: return "0.0";
+            case FLOAT: return "0.0f";
+            case SHORT: return "(short) 0";
+            case BYTE: return "(byte) 0";
+            case BOOLEAN: return "false";
+            case DECLARED: break;
+            default: return null;
+        }
+
+        String name = erasure(t);
+        switch (name) {
+            case "java.lang.String": return "\"\"";
+            case "java.lang.Integer": return "0";
+            case "java.lang.Long": return "0L";
+            case "java.lang.Double": return "0.0";
+            case "java.lang.Float": return "0.0f";
+            case "java.lang.Short": return "(short) 0";
+            case "java.lang.Byte": return "(byte) 0";
+            case "java.lang.Boolean": return "false";
+            case "java.math.BigDecimal": return "java.math.BigDecimal.valueOf(0L)";
+            default: break;
+        }
+
+        if (isEnum(t))
+            return name + ".values()[0]";
+
+        if (isMap(t)) {
+            if (!types.isAssignable(erasureOf("java.util.Map"), types.erasure(t)))
+                return null;
+            List<TypeMirror> arguments = typeArguments(t, 2);
+            if (arguments == null)
+                return null;
+            String key = elementDefault(arguments.get(0));
+            String value = elementDefault(arguments.get(1));
+            return (key == null || value == null)? null : "java.util.Map.of(" + key + ", " + value + ")";
+        }
+
+        if (isCollection(t)) {
+            if (!types.isAssignable(erasureOf("java.util.List"), types.erasure(t)))
+                return null;
+            List<TypeMirror> arguments = typeArguments(t, 1);
+            if (arguments == null)
+                return null;
+            String element = elementDefault(arguments.get(0));
+            return (element == null)? null : "java.util.List.of(" + element + ")";
+        }
+
+        if (isAssignable(t, "java.time.temporal.Temporal")) {
+            TypeElement element = (TypeElement) types.asElement(t);
+            for (ExecutableElement method : ElementFilter.methodsIn(element.getEnclosedElements())) {
+                if (method.getSimpleName().contentEquals("now") && method.getParameters().isEmpty()
+                        && method.getModifiers().contains(Modifier.STATIC) && method.getModifiers().contains(Modifier.PUBLIC))
+                    return name + ".now()";
+            }
+            return null;
+        }
+
+        return null;
+    }
+
+    private String nonBasicDefault(TypeMirror t) {
+        if (t.getKind() != TypeKind.DECLARED)
+            return null;
+        String name = erasure(t);
+        return "(" + name + ") " + TYPE_UTIL + ".buildDefaultForNonBasicClass(" + name + ".class)";
+    }
+
+    private String elementDefault(TypeMirror t) {
+        if (t.getKind() != TypeKind.DECLARED || !((DeclaredType) t).getTypeArguments().isEmpty())
+            return null;
+        return (isBasicType(t))? javaDefault(t) : nonBasicDefault(t);
+    }
+
+    // type arguments as TypeUtil reads them, Object for raw types
+    private List<TypeMirror> typeArguments(TypeMirror t, int count) {
+        List<? extends TypeMirror> arguments = ((DeclaredType) t).getTypeArguments();
+        List<TypeMirror> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (arguments.isEmpty())
+                result.add(elements.getTypeElement("java.lang.Object").asType());
+            else if (arguments.size() == count)
+                result.add(arguments.get(i));
+            else
+                return null;
+        }
+        return result;
+    }
+
+
+    // same rules as FieldPlan and TypeUtil
+    private boolean isBasicType(TypeMirror t) {
+        return isBasicJavaType(t) || isMap(t) || isCollection(t) || isEnum(t);
+    }
+
+    private boolean isBasicJavaType(TypeMirror t) {
+        switch (t.getKind()) {
+            case INT: case LONG: case DOUBLE: case FLOAT: case SHORT: case BYTE: case BOOLEAN:
+                return true;
+            case DECLARED:
+                return isAssignable(t, "java.lang.Number") || isAssignable(t, "java.time.temporal.Temporal")
+                    || erasure(t).equals("java.lang.String") || erasure(t).equals("java.lang.Boolean");
+            default:
+                return false;
+        }
+    }
+
+    private boolean isEnum(TypeMirror t) {
+        Element element = types.asElement(t);
+        return element != null && element.getKind() == ElementKind.ENUM;
+    }
+
+    private boolean isList(TypeMirror t) {
+        return isAssignable(t, "java.util.List");
+    }
+
+    private boolean isMap(TypeMirror t) {
+        return isAssignable(t, "java.util.Map");
+    }
+
+    private boolean isCollection(TypeMirror t) {
+        return isAssignable(t, "java.util.Collection");
+    }
+
+    private boolean isAssignable(TypeMirror t, String className) {
+        return t.getKind() == TypeKind.DECLARED && types.isAssignable(types.erasure(t), erasureOf(className));
+    }
+
+
+    private boolean canInstantiate() {
+        if (type.getModifiers().contains(Modifier.ABSTRACT))
+            return false;
+        if (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC))
+            return false;
+
+        List<ExecutableElement> constructors = ElementFilter.constructorsIn(type.getEnclosedElements());
+        for (ExecutableElement constructor : constructors) {
+            if (constructor.getParameters().isEmpty())
+                return !constructor.getModifiers().contains(Modifier.PRIVATE);
+        }
+        return constructors.isEmpty();
+    }
+
+    // public fields as Class.getFields sees them, that the generated class can reach
+    private List<VariableElement> publicFields() {
+        List<VariableElement> fields = new ArrayList<>();
+        for (VariableElement field : ElementFilter.fieldsIn(elements.getAllMembers(type))) {
+            if (!field.getModifiers().contains(Modifier.PUBLIC))
+                continue;
+
+            TypeElement declaringType = (TypeElement) field.getEnclosingElement();
+            boolean reachable = declaringType.getModifiers().contains(Modifier.PUBLIC)
+                || elements.getPackageOf(declaringType).getQualifiedName().contentEquals(packageName);
+            if (reachable)
+                fields.add(field);
+        }
+        return fields;
+    }
+
+
+    private TypeMirror erasureOf(String className) {
+        return types.erasure(elements.getTypeElement(className).asType());
+    }
+
+    private String erasure(TypeMirror t) {
+        return types.erasure(t).toString();
+    }
+
+    private String boxedErasure(TypeMirror t) {
+        if (t.getKind().isPrimitive())
+            return types.boxedClass((PrimitiveType) t).getQualifiedName().toString();
+        return erasure(t);
+    }
+
+    private PickableSourceWriter line(String line) {
+        out.append(line).append('\n');
+        return this;
+    }
+
+}
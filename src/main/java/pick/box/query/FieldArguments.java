@@ -0,0 +1,62 @@
+package pick.box.query;
+
+import java.util.Objects;
+
+/**
+ * <pre>
+ * The arguments given to one field of a request, see QueryArguments. Resolvers
+ * get them through ResolveContext. Immutable, and used as part of the key when
+ * resolver results are memoized or cached.
+ * </pre>
+ */
+public final class FieldArguments {
+
+    private final Page page;
+    private final Filter filter;
+
+
+    /**
+     * @param page page of a list field (can be null)
+     * @param filter filter of a list field (can be null)
+     */
+    public FieldArguments(Page page, Filter filter) {
+        this.page = page;
+        this.filter = filter;
+    }
+
+
+    /**
+     * The page of a list field, null for the whole list
+     */
+    public Page getPage() {
+        return page;
+    }
+
+    /**
+     * The filter of a list field, null for every element
+     */
+    public Filter getFilter() {
+        return filter;
+    }
+
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other)
+            return true;
+        if (!(other instanceof FieldArguments arguments))
+            return false;
+        return Objects.equals(page, arguments.page) && Objects.equals(filter, arguments.filter);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(page, filter);
+    }
+
+    @Override
+    public String toString() {
+        return "FieldArguments{page=" + page + ", filter=" + filter + "}";
+    }
+
+}
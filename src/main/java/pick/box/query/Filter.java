@@ -0,0 +1,265 @@
+package pick.box.query;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import pick.box.plan.FieldPlan;
+import pick.box.plan.ProjectionPlan;
+
+/**
+ * <pre>
+ * Conditions the elements of a list field have to meet, eg
+ *
+ *     Filter.eq("refrigerated", true).and(Filter.range("shippedOn", lastMonth, today))
+ *
+ * Conditions are on the public fields of the elements (or the keys of elements
+ * that are Maps) and are all combined with 'and'. A resolver can read them with 
+ * getConditions and put them in its query (saying so with Resolver.appliesFilter),
+ * otherwise PickBox removes the elements that don't match from what the resolver
+ * returned.
+ *
+ * Numbers are compared by value whatever their type (1 equals 1L), other range 
+ * values have to be Comparable to each other. An element missing the field (or 
+ * with a null value) only matches eq(field, null).
+ * </pre>
+ */
+public final class Filter {
+
+    public enum Operator {
+        /** the field equals the value */
+        EQ,
+        /** the field equals one of the values */
+        IN,
+        /** the field is between two values (inclusive), a null bound is open */
+        RANGE
+    }
+
+    /**
+     * One condition of a filter
+     */
+    public static final class Condition {
+
+        private final String field;
+        private final Operator operator;
+        private final List<Object> values;
+
+
+        private Condition(String field, Operator operator, List<Object> values) {
+            this.field = Objects.requireNonNull(field, "Filter field can't be null");
+            this.operator = operator;
+            this.values = Collections.unmodifiableList(values);
+        }
+
+
+        public String getField() {
+            return field;
+        }
+
+        public Operator getOperator() {
+            return operator;
+        }
+
+        /**
+         * The value for EQ, the values for IN, and the min and max (either can be null) for RANGE
+         */
+        public List<Object> getValues() {
+            return values;
+        }
+
+
+        boolean test(Object fieldValue) {
+            switch (operator) {
+                case EQ:
+                    return valuesEqual(fieldValue, values.get(0));
+                case IN:
+                    for (Object value : values) {
+                        if (valuesEqual(fieldValue, value))
+                            return true;
+                    }
+                    return false;
+                default:
+                    if (fieldValue == null)
+                        return false;
+                    Object min = values.get(0);
+                    Object max = values.get(1);
+                    return (min == null || compare(fieldValue, min) >= 0) && (max == null || compare(fieldValue, max) <= 0);
+            }
+        }
+
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other)
+                return true;
+            if (!(other instanceof Condition condition))
+                return false;
+            return field.equals(condition.field) && operator == condition.operator && values.equals(condition.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(field, operator, values);
+        }
+
+        @Override
+        public String toString() {
+            return field + " " + operator + " " + values;
+        }
+    }
+
+
+    private static final Set<Class<?>> WHOLE_NUMBERS = Set.of(Long.class, Integer.class, Short.class, Byte.class);
+
+
+    private final List<Condition> conditions;
+
+
+    private Filter(List<Condition> conditions) {
+        this.conditions = Collections.unmodifiableList(conditions);
+    }
+
+
+    /**
+     * Elements whose field equals the value
+     */
+    public static Filter eq(String field, Object value) {
+        return new Filter(List.of(new Condition(field, Operator.EQ, Collections.singletonList(value))));
+    }
+
+    /**
+     * Elements whose field equals one of the values
+     */
+    public static Filter in(String field, Collection<?> values) {
+        return new Filter(List.of(new Condition(field, Operator.IN, new ArrayList<>(values))));
+    }
+
+    /**
+     * Elements whose field is between min and max (inclusive), null for no min or max
+     */
+    public static Filter range(String field, Object min, Object max) {
+        if (min == null && max == null)
+            throw new IllegalArgumentException("A range needs a min or a max: " + field);
+        return new Filter(List.of(new Condition(field, Operator.RANGE, Arrays.asList(min, max))));
+    }
+
+    /**
+     * A filter with the conditions of both filters
+     */
+    public Filter and(Filter other) {
+        List<Condition> combined = new ArrayList<>(conditions);
+        combined.addAll(other.conditions);
+        return new Filter(combined);
+    }
+
+
+    public List<Condition> getConditions() {
+        return conditions;
+    }
+
+
+    /**
+     * True if the element meets every condition
+     */
+    public boolean test(Object element) {
+        if (element == null)
+            return false;
+        for (Condition condition : conditions) {
+            if (!condition.test(fieldValue(element, condition.getField())))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * <pre>
+     * The elements of the list meeting every condition, the list itself if they all do
+     * </pre>
+     */
+    public <T> List<T> apply(List<T> list) {
+        List<T> matching = null;
+        for (int i = 0; i < list.size(); i++) {
+            T element = list.get(i);
+            boolean matches = test(element);
+            if (!matches && matching == null)
+                matching = new ArrayList<>(list.subList(0, i));
+            else if (matches && matching != null)
+                matching.add(element);
+        }
+        return (matching == null)? list : matching;
+    }
+
+    private static Object fieldValue(Object element, String field) {
+        if (element instanceof Map<?, ?> map)
+            return map.get(field);
+        FieldPlan fieldPlan = ProjectionPlan.of(element.getClass()).getField(field);
+        return (fieldPlan == null)? null : fieldPlan.getAccessor().get(element);
+    }
+
+
+    private static boolean valuesEqual(Object fieldValue, Object value) {
+        if (fieldValue instanceof Number number && value instanceof Number other)
+            return compareNumbers(number, other) == 0;
+        if (fieldValue instanceof Enum<?> enumValue && value instanceof String name)
+            return enumValue.name().equals(name);
+        return Objects.equals(fieldValue, value);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compare(Object fieldValue, Object bound) {
+        if (fieldValue instanceof Number number && bound instanceof Number other)
+            return compareNumbers(number, other);
+        if (fieldValue instanceof Comparable comparable && fieldValue.getClass().isInstance(bound))
+            return comparable.compareTo(bound);
+        throw new IllegalArgumentException(
+            "Can't compare " + fieldValue.getClass().getName() + " to filter value of type " + bound.getClass().getName()
+        );
+    }
+
+    private static int compareNumbers(Number a, Number b) {
+        if (WHOLE_NUMBERS.contains(a.getClass()) && WHOLE_NUMBERS.contains(b.getClass()))
+            return Long.compare(a.longValue(), b.longValue());
+        if (!isFinite(a) || !isFinite(b))
+            return Double.compare(a.doubleValue(), b.doubleValue());
+        return toDecimal(a).compareTo(toDecimal(b));
+    }
+
+    private static boolean isFinite(Number number) {
+        return !(number instanceof Double || number instanceof Float) || Double.isFinite(number.doubleValue());
+    }
+
+    private static BigDecimal toDecimal(Number number) {
+        if (number instanceof BigDecimal decimal)
+            return decimal;
+        if (number instanceof Double || number instanceof Float)
+            return BigDecimal.valueOf(number.doubleValue());
+        return new BigDecimal(number.toString());
+    }
+
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other)
+            return true;
+        if (!(other instanceof Filter filter))
+            return false;
+        return conditions.equals(filter.conditions);
+    }
+
+    @Override
+    public int hashCode() {
+        return conditions.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "Filter" + conditions;
+    }
+
+}
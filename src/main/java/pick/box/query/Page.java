@@ -0,0 +1,119 @@
+package pick.box.query;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * <pre>
+ * Which part of a list field a request wants: an offset and a limit, or a cursor
+ * (the position after the last element of the previous page) and a limit.
+ *
+ * Only resolvers can use a cursor, since only they know what it means. A resolver
+ * that pages its results itself says so with Resolver.appliesPaging, otherwise
+ * PickBox skips 'offset' elements of the full list and keeps 'limit' of them (and
+ * throws a PickerException for a cursor page).
+ * </pre>
+ */
+public final class Page {
+
+    /**
+     * Limit of a page without one
+     */
+    public static final int NO_LIMIT = -1;
+
+    private final int offset;
+    private final int limit;
+    private final String cursor;
+
+
+    public Page(int offset, int limit, String cursor) {
+        if (offset < 0)
+            throw new IllegalArgumentException("Page offset can't be negative: " + offset);
+        if (limit < 0 && limit != NO_LIMIT)
+            throw new IllegalArgumentException("Page limit can't be negative: " + limit);
+        this.offset = offset;
+        this.limit = limit;
+        this.cursor = cursor;
+    }
+
+
+    /**
+     * The first 'limit' elements
+     */
+    public static Page first(int limit) {
+        return new Page(0, limit, null);
+    }
+
+    /**
+     * 'limit' elements starting at 'offset'
+     */
+    public static Page of(int offset, int limit) {
+        return new Page(offset, limit, null);
+    }
+
+    /**
+     * 'limit' elements after the cursor
+     */
+    public static Page after(String cursor, int limit) {
+        return new Page(0, limit, cursor);
+    }
+
+
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Most elements wanted, NO_LIMIT for all of them
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Cursor the page starts after, null if paging by offset
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+
+    /**
+     * <pre>
+     * The part of a list in the page. If the resolver already paged the list only 
+     * the limit is enforced, otherwise the offset is skipped first.
+     * </pre>
+     * @param list the list the resolver returned
+     * @param appliedByResolver true if the resolver applied the page itself
+     * @return a view of the list
+     */
+    public <T> List<T> apply(List<T> list, boolean appliedByResolver) {
+        int size = list.size();
+        int from = (appliedByResolver)? 0 : Math.min(offset, size);
+        int to = (limit == NO_LIMIT)? size : (int) Math.min(size, (long) from + limit);
+        if (from == 0 && to == size)
+            return list;
+        return list.subList(from, to);
+    }
+
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other)
+            return true;
+        if (!(other instanceof Page page))
+            return false;
+        return offset == page.offset && limit == page.limit && Objects.equals(cursor, page.cursor);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(offset, limit, cursor);
+    }
+
+    @Override
+    public String toString() {
+        return "Page{offset=" + offset + ", limit=" + limit + ((cursor == null)? "" : ", cursor=" + cursor) + "}";
+    }
+
+}
@@ -0,0 +1,55 @@
+package pick.box.query;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <pre>
+ * Arguments for the fields of a request, passed alongside the request object
+ * (eg PickBox.resolveRequest(request, extraData, arguments)). Fields are given
+ * by their path: the simple name of the request class followed by the field
+ * names, the same paths ResolverException uses. eg
+ *
+ *     QueryArguments arguments = new QueryArguments();
+ *     arguments.setPage("University.students", Page.of(40, 20));
+ *     arguments.setPage("University.classes.classDays", Page.first(5));
+ *     arguments.setFilter("University.students", Filter.in("id", List.of("std_1", "std_2")));
+ *
+ * </pre>
+ */
+public class QueryArguments {
+
+    private final Map<String, FieldArguments> fields = new HashMap<>();
+
+
+    /**
+     * Pages the list at the path
+     */
+    public void setPage(String fieldPath, Page page) {
+        FieldArguments arguments = fields.get(fieldPath);
+        fields.put(fieldPath, new FieldArguments(page, (arguments == null)? null : arguments.getFilter()));
+    }
+
+    /**
+     * <pre>
+     * Filters the list at the path. The filter is applied before the page, so the
+     * page is of the elements that match.
+     * </pre>
+     */
+    public void setFilter(String fieldPath, Filter filter) {
+        FieldArguments arguments = fields.get(fieldPath);
+        fields.put(fieldPath, new FieldArguments((arguments == null)? null : arguments.getPage(), filter));
+    }
+
+    /**
+     * Arguments of the field at the path, null if it has none
+     */
+    public FieldArguments get(String fieldPath) {
+        return fields.get(fieldPath);
+    }
+
+    public boolean isEmpty() {
+        return fields.isEmpty();
+    }
+
+}
@@ -0,0 +1,137 @@
+package pick.box.query;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import pick.box.exception.PickerException;
+
+/**
+ * <pre>
+ * Parses a selection string into a SelectionSet. The fields of an object are
+ * separated by commas (or whitespace) and the fields wanted on a nested object or
+ * the elements of a list go in braces after the field, eg
+ *
+ *     name,orders{orderId,orderLines{itemId,quantity}}
+ *
+ * Braces around the whole selection are optional. Field names aren't checked 
+ * here, that's done when the selection is compiled against a class (see 
+ * PickBox.resolveSelection).
+ *
+ * The string is read once, character by character, without any intermediate 
+ * tokens. Fields can be nested at most MAX_DEPTH levels deep, so a selection from
+ * a client can't run the parser out of stack.
+ * </pre>
+ */
+public final class SelectionParser {
+
+    /**
+     * How many levels of braces a selection can nest (not counting braces around 
+     * the whole selection)
+     */
+    public static final int MAX_DEPTH = 64;
+
+    private final String text;
+    private int position;
+
+
+    private SelectionParser(String text) {
+        this.text = text;
+    }
+
+
+    /**
+     * Parses a selection string, see the class doc for the format
+     *
+     * @param selection the selection string
+     * @return the selection it describes
+     * @throws PickerException if the string isn't a valid selection, or nests 
+     * deeper than MAX_DEPTH
+     */
+    public static SelectionSet parse(String selection) {
+        if (selection == null)
+            throw new PickerException("Selection can't be null", null);
+
+        SelectionParser parser = new SelectionParser(selection);
+        parser.skipSeparators();
+        boolean braced = parser.peek() == '{';
+        if (braced)
+            parser.position++;
+
+        SelectionSet result = parser.fields(braced, 0);
+        parser.skipSeparators();
+        if (parser.position < selection.length())
+            throw parser.error("Unexpected '" + selection.charAt(parser.position) + "'");
+        return result;
+    }
+
+
+    /**
+     * Reads fields until the closing brace (or the end of the text if not braced),
+     * depth being how many fields deep they are
+     */
+    private SelectionSet fields(boolean braced, int depth) {
+        Map<String, SelectionSet> fields = new LinkedHashMap<>();
+        while (true) {
+            skipSeparators();
+            char next = peek();
+            if (next == '}') {
+                if (!braced)
+                    throw error("Unexpected '}'");
+                position++;
+                break;
+            }
+            if (next == 0) {
+                if (braced)
+                    throw error("Missing '}'");
+                break;
+            }
+
+            String name = name();
+            skipWhitespace();
+            SelectionSet nested = SelectionSet.EMPTY;
+            if (peek() == '{') {
+                if (depth == MAX_DEPTH)
+                    throw error("Field " + name + " is nested deeper than " + MAX_DEPTH + " levels");
+                position++;
+                nested = fields(true, depth + 1);
+                if (nested.isEmpty())
+                    throw error("Empty selection for field " + name);
+            }
+            if (fields.putIfAbsent(name, nested) != null)
+                throw error("Field " + name + " is selected twice");
+        }
+
+        if (fields.isEmpty())
+            return SelectionSet.EMPTY;
+        return new SelectionSet(fields);
+    }
+
+    private String name() {
+        int start = position;
+        if (!Character.isJavaIdentifierStart(peek()))
+            throw error((peek() == 0)? "Missing field name" : "Unexpected '" + peek() + "'");
+        position++;
+        while (position < text.length() && Character.isJavaIdentifierPart(text.charAt(position)))
+            position++;
+        return text.substring(start, position);
+    }
+
+    private void skipSeparators() {
+        while (position < text.length() && (text.charAt(position) == ',' || Character.isWhitespace(text.charAt(position))))
+            position++;
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position)))
+            position++;
+    }
+
+    private char peek() {
+        return (position < text.length())? text.charAt(position) : 0;
+    }
+
+    private PickerException error(String message) {
+        return new PickerException(message + " at position " + position + " of selection '" + text + "'", null);
+    }
+
+}
@@ -0,0 +1,115 @@
+package pick.box.query;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <pre>
+ * The fields a request asked for on an object, and what it asked for on the
+ * objects nested under them. Given to resolvers with ResolveContext.getSelection
+ * so they can fetch only what's needed, eg
+ *
+ *     SelectionSet selection = context.getSelection();
+ *     List{@literal <}String> columns = new ArrayList{@literal <}>(selection.getFieldNames());
+ *     if (selection.contains("items"))
+ *         // join the order items in the same query
+ *
+ * Selections are built once per query plan, they're immutable and shared by every
+ * request with the same shape.
+ * </pre>
+ */
+public final class SelectionSet {
+
+    /**
+     * Selection of a field with nothing under it (basic values, maps, lists of basic values)
+     */
+    public static final SelectionSet EMPTY = new SelectionSet(Collections.emptyMap());
+
+
+    private final Map<String, SelectionSet> fields;
+    private final int hash;
+
+
+    /**
+     * @param fields the selected field names (in order) and the selection under each
+     */
+    public SelectionSet(Map<String, SelectionSet> fields) {
+        Map<String, SelectionSet> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, SelectionSet> field : fields.entrySet())
+            copy.put(field.getKey(), (field.getValue() == null)? EMPTY : field.getValue());
+        this.fields = Collections.unmodifiableMap(copy);
+        this.hash = this.fields.hashCode();
+    }
+
+
+    /**
+     * True if the field was selected
+     */
+    public boolean contains(String fieldName) {
+        return fields.containsKey(fieldName);
+    }
+
+    /**
+     * Names of the selected fields, in order
+     */
+    public Set<String> getFieldNames() {
+        return fields.keySet();
+    }
+
+    /**
+     * What was selected under a field, EMPTY for fields without nested objects, null if the field wasn't selected
+     */
+    public SelectionSet get(String fieldName) {
+        return fields.get(fieldName);
+    }
+
+    public boolean isEmpty() {
+        return fields.isEmpty();
+    }
+
+    public int size() {
+        return fields.size();
+    }
+
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other)
+            return true;
+        if (!(other instanceof SelectionSet selection))
+            return false;
+        return hash == selection.hash && fields.equals(selection.fields);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * The selection in the same format as a query plan fingerprint, eg '{name,children{name,age}}'
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        appendTo(builder);
+        return builder.toString();
+    }
+
+    private void appendTo(StringBuilder builder) {
+        builder.append('{');
+        boolean first = true;
+        for (Map.Entry<String, SelectionSet> field : fields.entrySet()) {
+            if (!first)
+                builder.append(',');
+            first = false;
+            builder.append(field.getKey());
+            if (!field.getValue().isEmpty())
+                field.getValue().appendTo(builder);
+        }
+        builder.append('}');
+    }
+
+}
@@ -0,0 +1,114 @@
+package pick.box.types;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <pre>
+ * A java type (class or parameterized type) as a key PickBox can index resolvers
+ * by. List{@literal <}Student> from a field and List{@literal <}Student> from a
+ * resolver's type arguments are equal keys, without building strings for them.
+ *
+ * Wildcards and type variables are keyed by their name.
+ *
+ * Keys are immutable, with the hash worked out once.
+ * </pre>
+ */
+public final class TypeKey {
+
+    private static final TypeKey[] NO_ARGUMENTS = new TypeKey[0];
+
+
+    private final Class<?> rawType;
+    private final TypeKey[] arguments;
+    // for types that aren't classes or parameterized types
+    private final String name;
+    private final int hash;
+
+
+    private TypeKey(Class<?> rawType, TypeKey[] arguments, String name) {
+        this.rawType = rawType;
+        this.arguments = arguments;
+        this.name = name;
+        int hash = (rawType == null)? name.hashCode() : rawType.hashCode();
+        this.hash = 31 * hash + Arrays.hashCode(arguments);
+    }
+
+
+    /**
+     * The key of a type, eg from Field.getGenericType
+     */
+    public static TypeKey of(Type type) {
+        if (type instanceof Class<?> cls)
+            return new TypeKey(cls, NO_ARGUMENTS, null);
+
+        if (type instanceof ParameterizedType parameterizedType) {
+            Type[] typeArguments = parameterizedType.getActualTypeArguments();
+            TypeKey[] arguments = new TypeKey[typeArguments.length];
+            for (int i = 0; i < arguments.length; i++)
+                arguments[i] = of(typeArguments[i]);
+            return new TypeKey((Class<?>) parameterizedType.getRawType(), arguments, null);
+        }
+
+        return new TypeKey(null, NO_ARGUMENTS, type.getTypeName());
+    }
+
+    /**
+     * The key of List{@literal <}element>
+     */
+    public static TypeKey listOf(TypeKey element) {
+        return new TypeKey(List.class, new TypeKey[] { element }, null);
+    }
+
+
+    /**
+     * The class of the type, null for wildcards and type variables
+     */
+    public Class<?> getRawType() {
+        return rawType;
+    }
+
+    /**
+     * Keys of the type arguments, empty for a class
+     */
+    public TypeKey[] getArguments() {
+        return arguments.clone();
+    }
+
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other)
+            return true;
+        if (!(other instanceof TypeKey key))
+            return false;
+        return hash == key.hash
+            && rawType == key.rawType
+            && (rawType != null || name.equals(key.name))
+            && Arrays.equals(arguments, key.arguments);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        if (rawType == null)
+            return name;
+        if (arguments.length == 0)
+            return rawType.getName();
+
+        StringBuilder builder = new StringBuilder(rawType.getName()).append('<');
+        for (int i = 0; i < arguments.length; i++) {
+            if (i > 0)
+                builder.append(", ");
+            builder.append(arguments[i]);
+        }
+        return builder.append('>').toString();
+    }
+
+}
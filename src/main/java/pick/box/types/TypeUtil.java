@@ -9,10 +9,14 @@ import java.time.LocalDate;
 import java.time.temporal.Temporal;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import pick.box.exception.PickerException;
+import pick.box.generate.PickableSupport;
+import pick.box.generate.PickableSupports;
 
 public class TypeUtil {
     
@@ -50,7 +54,38 @@ public class TypeUtil {
     }
 
 
+    // classes whose default is being built on this thread, to stop at cycles
+    private static final ThreadLocal<Set<Class<?>>> BUILDING_DEFAULTS = ThreadLocal.withInitial(HashSet::new);
+
+
+    /**
+     * <pre>
+     * Builds an instance of the class with default values in its fields, see
+     * PickBox.getDefaultObject. A class that's already being built further up (a
+     * cycle) gets a plain instance from its no args constructor instead.
+     * </pre>
+     */
     public static Object buildDefaultForNonBasicClass(Class<?> type) {
+        Set<Class<?>> building = BUILDING_DEFAULTS.get();
+        if (!building.add(type))
+            return makeWithNoArgsConstructor(type);
+
+        try {
+            return buildDefault(type);
+        } finally {
+            building.remove(type);
+        }
+    }
+
+    private static Object buildDefault(Class<?> type) {
+
+        // use the generated builder for @Pickable classes
+        PickableSupport<?> support = PickableSupports.find(type);
+        if (support != null) {
+            Object generated = support.buildDefault();
+            if (generated != null)
+                return generated;
+        }
 
         Object instance;
         try {
@@ -0,0 +1,144 @@
+package pick.box;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import pick.box.domain.doubleNestedExample.University;
+import pick.box.domain.doubleNestedExample.resolvers.ClassDaysResolver;
+import pick.box.domain.doubleNestedExample.resolvers.ClazzResolver;
+import pick.box.domain.doubleNestedExample.resolvers.ProfessorResolver;
+import pick.box.domain.doubleNestedExample.resolvers.StudentResolver;
+import pick.box.domain.doubleNestedExample.resolvers.UniversityResolver;
+import pick.box.domain.nestedExample.ChildResolver;
+import pick.box.domain.nestedExample.Parent;
+import pick.box.domain.nestedExample.ParentResolver;
+
+/**
+ * <pre>
+ * Fails when resolveRequest or mapify allocate more bytes per call than the budget
+ * checked in for the scenario (src/test/resources/allocation-budgets.properties),
+ * so allocation regressions are caught before a release.
+ *
+ * Each call is warmed up first (so plans are cached and the JIT has settled), then
+ * the bytes the thread allocates over a batch of calls are averaged. The lowest
+ * average of a few batches is compared, which keeps out noise from the JIT and
+ * the test runner.
+ *
+ * If a change is meant to allocate more (or less), update the budget with it.
+ * Skipped on JVMs that can't measure allocation per thread.
+ * </pre>
+ */
+public class AllocationBudgetTest {
+
+    private static final String BUDGETS = "/allocation-budgets.properties";
+    private static final int WARM_UP_CALLS = 5_000;
+    private static final int BATCHES = 5;
+    private static final int CALLS_PER_BATCH = 1_000;
+
+    private static com.sun.management.ThreadMXBean threads;
+    private static Properties budgets;
+
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threadBean
+            && threadBean.isThreadAllocatedMemorySupported()) {
+            threadBean.setThreadAllocatedMemoryEnabled(true);
+            threads = threadBean;
+        }
+
+        budgets = new Properties();
+        try (InputStream in = AllocationBudgetTest.class.getResourceAsStream(BUDGETS)) {
+            assertNotNull(in, "Missing " + BUDGETS);
+            budgets.load(in);
+        }
+    }
+
+
+    @Test
+    void resolveRequestNested() {
+        PickBox pickerBox = nestedPickBox();
+        Parent request = PickBox.getDefaultObject(Parent.class);
+        assertWithinBudget("resolveRequest.nested", () -> pickerBox.resolveRequest(request, 1));
+    }
+
+    @Test
+    void resolveRequestUniversity() {
+        PickBox pickerBox = universityPickBox();
+        University request = PickBox.getDefaultObject(University.class);
+        assertWithinBudget("resolveRequest.university", () -> pickerBox.resolveRequest(request, "univ_1"));
+    }
+
+    @Test
+    void mapifyNested() {
+        Parent response = nestedPickBox().resolveRequest(PickBox.getDefaultObject(Parent.class), 1);
+        assertWithinBudget("mapify.nested", () -> PickerUtil.mapify(response));
+    }
+
+    @Test
+    void mapifyUniversity() {
+        University response = universityPickBox().resolveRequest(PickBox.getDefaultObject(University.class), "univ_1");
+        assertWithinBudget("mapify.university", () -> PickerUtil.mapify(response));
+    }
+
+
+    private static PickBox nestedPickBox() {
+        return new PickBox(List.of(new ParentResolver(), new ChildResolver()));
+    }
+
+    private static PickBox universityPickBox() {
+        return new PickBox(
+            List.of(new UniversityResolver(), new ClazzResolver(), new ClassDaysResolver(), new StudentResolver(), new ProfessorResolver())
+        );
+    }
+
+
+    private static void assertWithinBudget(String scenario, Supplier<?> call) {
+        assumeTrue(threads != null, "Allocation per thread can't be measured on this JVM");
+
+        String budgetProperty = budgets.getProperty(scenario);
+        assertNotNull(budgetProperty, "No allocation budget for " + scenario + " in " + BUDGETS);
+        long budget = Long.parseLong(budgetProperty.trim());
+
+        long bytesPerCall = measure(call);
+        assertTrue(
+            bytesPerCall <= budget,
+            scenario + " allocated " + bytesPerCall + " bytes per call, over its budget of " + budget
+        );
+    }
+
+    /**
+     * The lowest average bytes allocated per call over the batches
+     */
+    private static long measure(Supplier<?> call) {
+        // kept so the calls can't be optimized away
+        Object sink = null;
+        for (int i = 0; i < WARM_UP_CALLS; i++)
+            sink = call.get();
+
+        long threadId = Thread.currentThread().getId();
+        long lowest = Long.MAX_VALUE;
+        for (int batch = 0; batch < BATCHES; batch++) {
+            long before = threads.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < CALLS_PER_BATCH; i++)
+                sink = call.get();
+            long after = threads.getThreadAllocatedBytes(threadId);
+            lowest = Math.min(lowest, (after - before) / CALLS_PER_BATCH);
+        }
+
+        assertNotNull(sink);
+        return lowest;
+    }
+
+}
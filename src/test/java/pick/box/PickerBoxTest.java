@@ -2,38 +2,96 @@ package pick.box;
 
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.DayOfWeek;
+import java.time.Duration;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Test;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import pick.box.PickBox;
 import pick.box.PickerUtil;
+import pick.box.ProjectionEngine;
+import pick.box.Resolver;
+import pick.box.StreamingResolver;
+import pick.box.access.FieldAccessor;
+import pick.box.access.FieldAccessorFactory;
+import pick.box.access.MethodHandleAccessorFactory;
+import pick.box.access.MethodHandleFieldAccessor;
+import pick.box.access.ReflectionAccessorFactory;
+import pick.box.domain.cycleExample.Employee;
 import pick.box.domain.doubleNestedExample.ClassDays;
 import pick.box.domain.doubleNestedExample.Clazz;
 import pick.box.domain.doubleNestedExample.Professor;
 import pick.box.domain.doubleNestedExample.Student;
 import pick.box.domain.doubleNestedExample.University;
+import pick.box.cache.ResolverCache;
+import pick.box.cache.ResolverCacheSettings;
+import pick.box.domain.doubleNestedExample.resolvers.CachedProfessorResolver;
+import pick.box.domain.doubleNestedExample.resolvers.ClassDaysBatchResolver;
 import pick.box.domain.doubleNestedExample.resolvers.ClassDaysResolver;
 import pick.box.domain.doubleNestedExample.resolvers.ClazzResolver;
+import pick.box.domain.doubleNestedExample.resolvers.ClazzSelectionResolver;
+import pick.box.domain.doubleNestedExample.resolvers.ProfessorAsyncResolver;
 import pick.box.domain.doubleNestedExample.resolvers.ProfessorResolver;
+import pick.box.domain.doubleNestedExample.resolvers.StudentPagingResolver;
 import pick.box.domain.doubleNestedExample.resolvers.StudentResolver;
+import pick.box.domain.doubleNestedExample.resolvers.StudentStreamingResolver;
 import pick.box.domain.doubleNestedExample.resolvers.UniversityResolver;
+import pick.box.domain.nestedExample.Allowance;
 import pick.box.domain.nestedExample.Child;
 import pick.box.domain.nestedExample.ChildResolver;
 import pick.box.domain.nestedExample.Gender;
 import pick.box.domain.nestedExample.Parent;
 import pick.box.domain.nestedExample.ParentResolver;
 import pick.box.domain.nestedExample.RandomStuff;
+import pick.box.exception.PersistedQueryNotFoundException;
+import pick.box.exception.PickerException;
+import pick.box.exception.ResolverException;
+import pick.box.generate.GeneratedProjectors;
+import pick.box.generate.PickableSupport;
+import pick.box.generate.PickableSupports;
+import pick.box.generate.Projector;
+import pick.box.json.JsonRequestReader;
+import pick.box.json.JsonWriter;
+import pick.box.plan.FieldKind;
+import pick.box.plan.FieldPlan;
+import pick.box.plan.ProjectionPlan;
+import pick.box.plan.QueryPlan;
+import pick.box.plan.QueryPlanCompiler;
+import pick.box.plan.SelectionMask;
+import pick.box.query.Filter;
+import pick.box.query.Page;
+import pick.box.query.QueryArguments;
+import pick.box.query.SelectionParser;
+import pick.box.query.SelectionSet;
+import pick.box.types.TypeKey;
 
 
 
@@ -82,6 +140,223 @@ class PickerBoxTest {
     void mapDoubleNestedObject() {
         
 
+        University request = universityRequest();
+
+        PickBox pickerBox = new PickBox(
+            List.of(new UniversityResolver(), new ClazzResolver(), new ClassDaysResolver(), new StudentResolver(), new ProfessorResolver())
+        );
+
+        University result = pickerBox.resolveRequest(request, "univ_1");
+
+        Map<String, Object> resMap = PickerUtil.mapify(result);
+        // System.out.println(
+        //     PickerUtil.jsonMap(resMap)
+        // );
+    }
+
+
+    @Test
+    void getDefaultObject() throws JsonProcessingException {
+        University university = PickBox.getDefaultObject(University.class);
+
+        // System.out.println(
+        //     new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(university)
+        // );
+        
+        assertNotNull(university);
+    }
+
+
+    @Test
+    void getDefaultObjectWithZonedDate() throws JsonProcessingException {
+
+        
+        RandomStuff randomStuff = PickBox.getDefaultObject(RandomStuff.class);
+
+        // System.out.println(
+        //     randomStuff.date
+        // );
+        
+        assertNotNull(randomStuff);
+    }
+    
+    @Test
+    void projectionPlanIsBuiltOncePerClass() {
+        ProjectionPlan plan = ProjectionPlan.of(Parent.class);
+
+        assertSame(plan, ProjectionPlan.of(Parent.class));
+        assertEquals(3, plan.getFields().size());
+
+        FieldPlan children = plan.getFields().stream()
+            .filter(f -> f.getName().equals("children"))
+            .findFirst()
+            .orElseThrow();
+        assertEquals(FieldKind.LIST, children.getKind());
+        assertEquals(new ChildResolver().getReturnType(), children.getResolverType());
+        assertEquals(TypeKey.of(List.class), children.getTypeResolverType());
+    }
+    
+    @Test
+    void fieldAccessorsCopyPrimitiveFields() throws NoSuchFieldException {
+        Allowance from = new Allowance();
+        from.amount = 20;
+        from.interest = 0.5;
+        from.currency = "USD";
+
+        Allowance to = new Allowance();
+        for (FieldAccessorFactory factory : List.of(new MethodHandleAccessorFactory(), new ReflectionAccessorFactory())) {
+            FieldAccessor amount = factory.create(Allowance.class.getField("amount"));
+            FieldAccessor interest = factory.create(Allowance.class.getField("interest"));
+            FieldAccessor currency = factory.create(Allowance.class.getField("currency"));
+
+            amount.copy(from, to);
+            interest.copy(from, to);
+            currency.set(to, currency.get(from));
+
+            assertEquals(20, to.amount);
+            assertEquals(0.5, to.interest);
+            assertEquals("USD", to.currency);
+            assertFalse(amount.isNull(new Allowance()));
+            assertTrue(currency.isNull(new Allowance()));
+        }
+
+        assertTrue(new MethodHandleAccessorFactory().create(Allowance.class.getField("amount")) instanceof MethodHandleFieldAccessor);
+
+        Map<String, Object> mapped = PickerUtil.mapify(from);
+        assertEquals(20, mapped.get("amount"));
+        assertEquals("USD", mapped.get("currency"));
+    }
+    
+    @Test
+    void generatedProjectorsMatchAccessorProjection() {
+        PickBox pickerBox = new PickBox(
+            List.of(new UniversityResolver(), new ClazzResolver(), new ClassDaysResolver(), new StudentResolver(), new ProfessorResolver())
+        );
+        Map<String, Object> expected = PickerUtil.mapify(pickerBox.resolveRequest(universityRequest(), "univ_1"));
+
+        pickerBox.setProjectionEngine(ProjectionEngine.GENERATED);
+        University result = pickerBox.resolveRequest(universityRequest(), "univ_1");
+
+        assertEquals(expected, PickerUtil.mapify(result));
+        assertEquals("Teaching Focused University", result.name);
+        assertEquals(2, result.classes.size());
+
+        long nameAndAge = 0;
+        for (FieldPlan field : ProjectionPlan.of(Child.class).getFields()) {
+            if (!field.getName().equals("gender"))
+                nameAndAge |= 1L << field.getIndex();
+        }
+        Projector projector = GeneratedProjectors.get(ProjectionPlan.of(Child.class), nameAndAge);
+        assertNotNull(projector);
+        assertSame(projector, GeneratedProjectors.get(ProjectionPlan.of(Child.class), nameAndAge));
+
+        Child child = new Child();
+        child.name = "Dan";
+        child.age = 11;
+        child.gender = Gender.MALE;
+        Child projected = (Child) projector.project(child);
+        assertEquals("Dan", projected.name);
+        assertEquals(11, projected.age);
+        assertNull(projected.gender);
+    }
+
+    @Test
+    void pickableClassesUseGeneratedSupport() {
+        PickableSupport<Parent> support = PickableSupports.find(Parent.class);
+        assertNotNull(support);
+        assertNull(PickableSupports.find(University.class));
+        assertSame(support, ProjectionPlan.of(Parent.class).getSupport());
+
+        for (FieldPlan field : ProjectionPlan.of(Parent.class).getFields())
+            assertFalse(field.getAccessor() instanceof MethodHandleFieldAccessor);
+
+        Parent parent = PickBox.getDefaultObject(Parent.class);
+        assertEquals("", parent.name);
+        assertEquals(Gender.MALE, parent.gender);
+        assertEquals(0, parent.children.get(0).age);
+
+        Map<String, Object> mapped = PickerUtil.mapify(parent);
+        assertEquals("", mapped.get("name"));
+        assertEquals(Gender.MALE, mapped.get("gender"));
+        assertEquals(List.of(Map.of("name", "", "gender", Gender.MALE, "age", 0)), mapped.get("children"));
+    }
+
+
+    @Test
+    void queryPlansAreCachedByRequestShape() {
+        PickBox pickerBox = new PickBox(
+            List.of(new ParentResolver(), new ChildResolver())
+        );
+
+        Parent request = new Parent();
+        request.name = "";
+        Child child = new Child();
+        child.age = 0;
+        request.children = List.of(child);
+
+        assertEquals(
+            "pick.box.domain.nestedExample.Parent{children{age},name}",
+            QueryPlanCompiler.fingerprint(request)
+        );
+
+        Parent first = pickerBox.resolveRequest(request, 1);
+        Parent second = pickerBox.resolveRequest(request, 1);
+        assertEquals(PickerUtil.mapify(first), PickerUtil.mapify(second));
+        assertEquals(11, second.children.get(0).age);
+        assertNull(second.children.get(0).name);
+        assertEquals(1, pickerBox.getQueryPlanStats().getMisses());
+        assertEquals(1, pickerBox.getQueryPlanStats().getHits());
+        assertSame(pickerBox.getQueryPlan(request), pickerBox.getQueryPlan(request));
+
+        pickerBox.setQueryPlanCacheSize(1);
+        Parent other = new Parent();
+        other.gender = Gender.MALE;
+        pickerBox.resolveRequest(request, 1);
+        pickerBox.resolveRequest(other, 1);
+        assertEquals(1, pickerBox.getQueryPlanStats().getEvictions());
+    }
+
+
+    @Test
+    void batchResolverIsCalledOncePerLevel() {
+        PickBox pickerBox = new PickBox(
+            List.of(new UniversityResolver(), new ClazzResolver(), new ClassDaysResolver(), new StudentResolver(), new ProfessorResolver())
+        );
+        Map<String, Object> expected = PickerUtil.mapify(pickerBox.resolveRequest(universityRequest(), "univ_1"));
+
+        ClassDaysBatchResolver classDaysResolver = new ClassDaysBatchResolver();
+        PickBox batchPickerBox = new PickBox(
+            List.of(new UniversityResolver(), new ClazzResolver(), classDaysResolver, new StudentResolver(), new ProfessorResolver())
+        );
+        University result = batchPickerBox.resolveRequest(universityRequest(), "univ_1");
+
+        assertEquals(1, classDaysResolver.calls);
+        assertEquals(2, result.classes.size());
+        assertEquals(expected, PickerUtil.mapify(result));
+    }
+
+
+    /**
+     * A PickBox whose University resolver fills in the university's 5 students itself
+     */
+    private static PickBox suppliedStudentsPickBox() {
+        Resolver<University, Void, String> universityResolver = new Resolver<>() {
+            @Override
+            public University resolve(Void parent, String extraData) {
+                University university = new University();
+                university.id = extraData;
+                university.students = new ArrayList<>();
+                for (int i = 1; i <= 5; i++)
+                    university.students.add(new Student("s" + i, "Student " + i, List.of(), Map.of()));
+                return university;
+            }
+        };
+        return new PickBox(
+            List.of(universityResolver, new ClazzResolver(), new ClassDaysResolver(), new StudentResolver(), new ProfessorResolver())
+        );
+    }
+
+    private static University universityRequest() {
         University request = new University(
             "",
             "",
@@ -129,46 +404,874 @@ class PickerBoxTest {
             )
         );
 
-        
+        return request;
+    }
 
+    @Test
+    void concurrentResolversMatchSequentialResolution() {
         PickBox pickerBox = new PickBox(
             List.of(new UniversityResolver(), new ClazzResolver(), new ClassDaysResolver(), new StudentResolver(), new ProfessorResolver())
         );
+        Map<String, Object> expected = PickerUtil.mapify(pickerBox.resolveRequest(universityRequest(), "univ_1"));
 
-        University result = pickerBox.resolveRequest(request, "univ_1");
+        pickerBox.enableConcurrentResolvers();
+        assertNotNull(pickerBox.getResolverExecutor());
+        for (int i = 0; i < 10; i++)
+            assertEquals(expected, PickerUtil.mapify(pickerBox.resolveRequest(universityRequest(), "univ_1")));
 
-        Map<String, Object> resMap = PickerUtil.mapify(result);
-        // System.out.println(
-        //     PickerUtil.jsonMap(resMap)
-        // );
+        // failures say which field couldn't be resolved
+        PickBox failingPickerBox = new PickBox(
+            List.of(
+                new UniversityResolver(), new ClazzResolver(), new ClassDaysResolver(), new ProfessorResolver(),
+                new Resolver<List<Student>, University, String>() {
+                    @Override
+                    public List<Student> resolve(University parent, String extraData) {
+                        throw new IllegalStateException("student service is down");
+                    }
+                }
+            )
+        );
+        failingPickerBox.enableConcurrentResolvers();
+        ResolverException exception = assertThrows(
+            ResolverException.class,
+            () -> failingPickerBox.resolveRequest(universityRequest(), "univ_1")
+        );
+        assertEquals("University.students", exception.getFieldPath());
+        assertTrue(exception.getMessage().contains("student service is down"));
     }
 
 
+
     @Test
-    void getDefaultObject() throws JsonProcessingException {
-        University university = PickBox.getDefaultObject(University.class);
+    void asyncResolversCanBeMixedWithResolvers() {
+        PickBox pickerBox = new PickBox(
+            List.of(new UniversityResolver(), new ClazzResolver(), new ClassDaysResolver(), new StudentResolver(), new ProfessorResolver())
+        );
+        Map<String, Object> expected = PickerUtil.mapify(pickerBox.resolveRequest(universityRequest(), "univ_1"));
 
-        // System.out.println(
-        //     new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(university)
-        // );
-        
-        assertNotNull(university);
+        PickBox asyncPickerBox = new PickBox(
+            List.of(new UniversityResolver(), new ClazzResolver(), new ClassDaysBatchResolver(), new StudentResolver(), new ProfessorAsyncResolver())
+        );
+        CompletableFuture<University> future = asyncPickerBox.resolveRequestAsync(universityRequest(), "univ_1");
+        assertEquals(expected, PickerUtil.mapify(future.join()));
+
+        // the blocking call waits on async resolvers
+        assertEquals(expected, PickerUtil.mapify(asyncPickerBox.resolveRequest(universityRequest(), "univ_1")));
+
+        // failures complete the future with the path of the field
+        PickBox failingPickerBox = new PickBox(
+            List.of(
+                new UniversityResolver(), new ClazzResolver(), new ClassDaysResolver(), new StudentResolver(),
+                new AsyncResolver<List<Professor>, University, String>() {
+                    @Override
+                    public CompletableFuture<List<Professor>> resolveAsync(University parent, String extraData) {
+                        return CompletableFuture.failedFuture(new IllegalStateException("professor service is down"));
+                    }
+                }
+            )
+        );
+        CompletionException exception = assertThrows(
+            CompletionException.class,
+            () -> failingPickerBox.resolveRequestAsync(universityRequest(), "univ_1").join()
+        );
+        assertTrue(exception.getCause() instanceof ResolverException);
+        assertEquals("University.professors", ((ResolverException) exception.getCause()).getFieldPath());
     }
 
 
+
     @Test
-    void getDefaultObjectWithZonedDate() throws JsonProcessingException {
+    void resolverCallsAreMemoizedPerRequest() {
+        Clazz cs142 = new Clazz("CS_142", "CS 142", "Fall", "2024", null);
+        Clazz cs142Again = new Clazz("CS_142", "CS 142", "Fall", "2024", null);
+        Clazz cs256 = new Clazz("CS_256", "CS 256", "Fall", "2024", null);
+        Resolver<List<Clazz>, University, String> clazzResolver = new Resolver<>() {
+            @Override
+            public List<Clazz> resolve(University parent, String extraData) {
+                return List.of(cs142, cs142Again, cs256);
+            }
+        };
 
-        
-        RandomStuff randomStuff = PickBox.getDefaultObject(RandomStuff.class);
+        int[] calls = {0};
+        ClassDaysResolver classDaysResolver = new ClassDaysResolver();
+        Resolver<List<ClassDays>, Clazz, String> countingResolver = new Resolver<>() {
+            @Override
+            public List<ClassDays> resolve(Clazz parent, String extraData) {
+                calls[0]++;
+                return classDaysResolver.resolve(parent, extraData);
+            }
+        };
 
-        // System.out.println(
-        //     randomStuff.date
-        // );
-        
-        assertNotNull(randomStuff);
+        PickBox pickerBox = new PickBox(
+            List.of(new UniversityResolver(), clazzResolver, countingResolver, new StudentResolver(), new ProfessorResolver())
+        );
+        Map<String, Object> expected = PickerUtil.mapify(pickerBox.resolveRequest(universityRequest(), "univ_1"));
+        assertEquals(3, calls[0]);
+
+        // equal parents by their basic fields
+        calls[0] = 0;
+        pickerBox.setMemoizeResolvers(true);
+        University result = pickerBox.resolveRequest(universityRequest(), "univ_1");
+        assertEquals(expected, PickerUtil.mapify(result));
+        assertEquals(2, calls[0]);
+        assertEquals(1, pickerBox.getResolverMemoStats().getHits());
+        assertNotSame(result.classes.get(0).classDays.get(0), result.classes.get(1).classDays.get(0));
+
+        // keyed by class code
+        calls[0] = 0;
+        pickerBox.setParentKeyExtractor(Clazz.class, parent -> ((Clazz) parent).code);
+        assertEquals(expected, PickerUtil.mapify(pickerBox.resolveRequestAsync(universityRequest(), "univ_1").join()));
+        assertEquals(2, calls[0]);
+        assertEquals(2, pickerBox.getResolverMemoStats().getHits());
     }
-    
+
+
+
+    @Test
+    void resolverResultsAreCachedBetweenRequests() {
+        PickBox pickerBox = new PickBox(
+            List.of(new UniversityResolver(), new ClazzResolver(), new ClassDaysResolver(), new StudentResolver(), new ProfessorResolver())
+        );
+        Map<String, Object> expected = PickerUtil.mapify(pickerBox.resolveRequest(universityRequest(), "univ_1"));
+
+        CachedProfessorResolver professorResolver = new CachedProfessorResolver();
+        PickBox cachingPickerBox = new PickBox(
+            List.of(new UniversityResolver(), new ClazzResolver(), new ClassDaysResolver(), new StudentResolver(), professorResolver)
+        );
+        cachingPickerBox.setParentKeyExtractor(University.class, parent -> ((University) parent).id);
+
+        assertEquals(expected, PickerUtil.mapify(cachingPickerBox.resolveRequest(universityRequest(), "univ_1")));
+        assertEquals(expected, PickerUtil.mapify(cachingPickerBox.resolveRequest(universityRequest(), "univ_1")));
+        assertEquals(expected, PickerUtil.mapify(cachingPickerBox.resolveRequestAsync(universityRequest(), "univ_1").join()));
+        assertEquals(1, professorResolver.calls);
+
+        ResolverCache cache = cachingPickerBox.getResolverCache(CachedProfessorResolver.class);
+        assertEquals(2, cache.getStats().getHits());
+        assertEquals(1, cache.size());
+
+        cache.invalidate("univ_1", "univ_1");
+        cachingPickerBox.resolveRequest(universityRequest(), "univ_1");
+        assertEquals(2, professorResolver.calls);
+
+        // bounded by weight instead of count
+        ResolverCacheSettings settings = new ResolverCacheSettings(Duration.ofMinutes(1), 0);
+        settings.setMaxWeight(1, (key, value) -> ((List<?>) value).size());
+        ResolverCache studentCache = cachingPickerBox.setResolverCache(StudentResolver.class, settings);
+        cachingPickerBox.resolveRequest(universityRequest(), "univ_1");
+        assertEquals(0, studentCache.size());
+        assertEquals(1, studentCache.getStats().getEvictions());
+    }
+
+
+
+    @Test
+    void jsonWriterWritesValidJson() throws IOException {
+        PickBox pickerBox = new PickBox(
+            List.of(new UniversityResolver(), new ClazzResolver(), new ClassDaysResolver(), new StudentResolver(), new ProfessorResolver())
+        );
+        Map<String, Object> map = PickerUtil.mapify(pickerBox.resolveRequest(universityRequest(), "univ_1"));
+        map.put("motto", "\"quoted\" \\ back\tslash\nnew line \u0001 \u2028");
+        map.put("grid", List.of(List.of(1, 2), List.of(3.5, Double.NaN)));
+
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, Object> expected = new HashMap<>(map);
+        expected.put("grid", List.of(List.of(1, 2), List.of(3.5, "NaN")));
+
+        StringWriter compact = new StringWriter();
+        PickerUtil.writeJson(map, compact, false);
+        assertFalse(compact.toString().contains("\n"));
+        assertEquals(mapper.valueToTree(expected), mapper.readTree(compact.toString()));
+
+        assertEquals(mapper.valueToTree(expected), mapper.readTree(PickerUtil.jsonMap(map)));
+
+        // floats print as floats, not widened to double
+        RandomStuff stuff = new RandomStuff();
+        stuff.ratio = 0.1f;
+        StringWriter floats = new StringWriter();
+        PickerUtil.writeJson(stuff, floats, false);
+        assertEquals("{\"ratio\":0.1}", floats.toString());
+        assertEquals("{\"ratio\":0.1}", PickerUtil.jsonMap(PickerUtil.mapify(stuff)).replaceAll("\\s", ""));
+        StringWriter notANumber = new StringWriter();
+        new JsonWriter(notANumber).value((Number) Float.NaN).flush();
+        assertEquals("\"NaN\"", notANumber.toString());
+
+        // the response object itself, without mapify
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PickerUtil.writeJson(pickerBox.resolveRequest(universityRequest(), "univ_1"), bytes, true);
+        assertEquals(
+            mapper.valueToTree(PickerUtil.mapify(pickerBox.resolveRequest(universityRequest(), "univ_1"))), 
+            mapper.readTree(bytes.toByteArray())
+        );
+    }
+
+
+
+    @Test
+    void resolveToWritesTheSameJsonAsMapify() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+
+        PickBox pickerBox = new PickBox(
+            List.of(new UniversityResolver(), new ClazzResolver(), new ClassDaysBatchResolver(), new StudentResolver(), new ProfessorResolver())
+        );
+        StringWriter json = new StringWriter();
+        JsonWriter jsonWriter = new JsonWriter(json);
+        pickerBox.resolveTo(universityRequest(), "univ_1", jsonWriter);
+        jsonWriter.flush();
+        assertEquals(
+            mapper.valueToTree(PickerUtil.mapify(pickerBox.resolveRequest(universityRequest(), "univ_1"))), 
+            mapper.readTree(json.toString())
+        );
+
+        Parent request = new Parent();
+        request.name = "";
+        request.children = List.of(new Child());
+        PickBox parentPickerBox = new PickBox(List.of(new ParentResolver(), new ChildResolver()));
+        json = new StringWriter();
+        jsonWriter = new JsonWriter(json, true);
+        parentPickerBox.resolveTo(request, 1, jsonWriter);
+        jsonWriter.flush();
+        assertEquals(
+            mapper.valueToTree(PickerUtil.mapify(parentPickerBox.resolveRequest(request, 1))), 
+            mapper.readTree(json.toString())
+        );
+    }
+
+
+
+    @Test
+    void streamingResolversAreWrittenAChunkAtATime() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+
+        for (boolean publish : new boolean[] {false, true}) {
+            StudentStreamingResolver studentResolver = new StudentStreamingResolver(1000, publish);
+            PickBox pickerBox = new PickBox(
+                List.of(new UniversityResolver(), new ClazzResolver(), new ClassDaysResolver(), studentResolver, new ProfessorResolver())
+            );
+
+            StringWriter json = new StringWriter();
+            JsonWriter jsonWriter = new JsonWriter(json);
+            pickerBox.resolveTo(universityRequest(), "univ_1", jsonWriter);
+            jsonWriter.flush();
+
+            JsonNode students = mapper.readTree(json.toString()).get("students");
+            assertEquals(1000, students.size());
+            assertEquals("std_999", students.get(999).get("id").asText());
+            assertEquals(1, studentResolver.closed);
+
+            // resolveRequest collects the stream
+            University result = pickerBox.resolveRequest(universityRequest(), "univ_1");
+            assertEquals(1000, result.students.size());
+            assertEquals(2, studentResolver.opened);
+            assertEquals(2, studentResolver.closed);
+        }
+
+        // publishers are pulled from a chunk at a time, never more than the buffer ahead
+        int bufferSize = 8;
+        int[] requested = new int[1];
+        List<Integer> outstanding = new ArrayList<>();
+        Flow.Publisher<Integer> publisher = subscriber -> subscriber.onSubscribe(new Flow.Subscription() {
+            int sent = 0;
+
+            @Override
+            public void request(long n) {
+                requested[0] += (int) n;
+                while (sent < requested[0] && sent < 100)
+                    subscriber.onNext(sent++);
+                if (sent == 100)
+                    subscriber.onComplete();
+            }
+
+            @Override
+            public void cancel() {}
+        });
+        int read = 0;
+        Iterator<Integer> elements = StreamingResolver.fromPublisher(publisher, bufferSize).iterator();
+        while (elements.hasNext()) {
+            assertEquals(read, elements.next());
+            read++;
+            outstanding.add(requested[0] - read);
+        }
+        assertEquals(100, read);
+        assertTrue(outstanding.stream().allMatch(ahead -> ahead <= bufferSize));
+        assertTrue(outstanding.stream().anyMatch(ahead -> ahead < bufferSize));
+
+        // a publisher sending more than it was asked for fails the stream instead of dropping elements
+        boolean[] cancelled = new boolean[1];
+        Flow.Publisher<Integer> flooding = subscriber -> subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                for (int i = 0; i < n + 5; i++)
+                    subscriber.onNext(i);
+                subscriber.onComplete();
+            }
+
+            @Override
+            public void cancel() {
+                cancelled[0] = true;
+            }
+        });
+        Stream<Integer> flooded = StreamingResolver.fromPublisher(flooding, bufferSize);
+        assertThrows(PickerException.class, () -> flooded.forEach(element -> {}));
+        assertTrue(cancelled[0]);
+    }
+
+
+
+    @Test
+    void listFieldsArePagedByQueryArguments() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        QueryArguments arguments = new QueryArguments();
+        arguments.setPage("University.students", Page.of(1, 1));
+
+        // pickbox pages the list when the resolver doesn't
+        PickBox pickerBox = new PickBox(
+            List.of(new UniversityResolver(), new ClazzResolver(), new ClassDaysResolver(), new StudentResolver(), new ProfessorResolver())
+        );
+        University result = pickerBox.resolveRequest(universityRequest(), "univ_1", arguments);
+        assertEquals(1, result.students.size());
+        assertEquals("std_2", result.students.get(0).id);
+        assertEquals(2, pickerBox.resolveRequest(universityRequest(), "univ_1").students.size());
+        assertEquals(1, pickerBox.resolveRequestAsync(universityRequest(), "univ_1", arguments).join().students.size());
+
+        StringWriter json = new StringWriter();
+        JsonWriter jsonWriter = new JsonWriter(json);
+        pickerBox.resolveTo(universityRequest(), "univ_1", arguments, jsonWriter);
+        jsonWriter.flush();
+        assertEquals(mapper.valueToTree(PickerUtil.mapify(result)), mapper.readTree(json.toString()));
+
+        // a resolver that pages gets the page, only the limit is enforced
+        StudentPagingResolver pagingResolver = new StudentPagingResolver();
+        arguments.setPage("University.students", Page.of(20, 5));
+        pickerBox = new PickBox(
+            List.of(new UniversityResolver(), new ClazzResolver(), new ClassDaysResolver(), pagingResolver, new ProfessorResolver())
+        );
+        result = pickerBox.resolveRequest(universityRequest(), "univ_1", arguments);
+        assertEquals(Page.of(20, 5), pagingResolver.lastPage);
+        assertEquals(5, result.students.size());
+        assertEquals("std_20", result.students.get(0).id);
+
+        // streamed lists are paged while they're read
+        StudentStreamingResolver streamingResolver = new StudentStreamingResolver(1000, false);
+        pickerBox = new PickBox(
+            List.of(new UniversityResolver(), new ClazzResolver(), new ClassDaysResolver(), streamingResolver, new ProfessorResolver())
+        );
+        json = new StringWriter();
+        jsonWriter = new JsonWriter(json);
+        pickerBox.resolveTo(universityRequest(), "univ_1", arguments, jsonWriter);
+        jsonWriter.flush();
+        JsonNode students = mapper.readTree(json.toString()).get("students");
+        assertEquals(5, students.size());
+        assertEquals("std_20", students.get(0).get("id").asText());
+
+        // a cursor can't be applied by PickBox, so it fails instead of giving the first page again
+        QueryArguments cursorArguments = new QueryArguments();
+        cursorArguments.setPage("University.students", Page.after("std_20", 5));
+        PickBox streamingBox = pickerBox;
+        PickerException streamed = assertThrows(
+            PickerException.class, 
+            () -> streamingBox.resolveTo(universityRequest(), "univ_1", cursorArguments, new JsonWriter(new StringWriter()))
+        );
+        assertTrue(streamed.getMessage().contains("University.students"));
+
+        PickBox listBox = new PickBox(
+            List.of(new UniversityResolver(), new ClazzResolver(), new ClassDaysResolver(), new StudentResolver(), new ProfessorResolver())
+        );
+        PickerException listed = assertThrows(
+            PickerException.class, 
+            () -> listBox.resolveRequest(universityRequest(), "univ_1", cursorArguments)
+        );
+        assertTrue(listed.getMessage().contains("University.students"));
+
+        // lists the parent's response provides are paged too
+        PickBox suppliedBox = suppliedStudentsPickBox();
+        QueryArguments firstTwo = new QueryArguments();
+        firstTwo.setPage("University.students", Page.first(2));
+        University supplied = suppliedBox.resolveSelection(University.class, "id,students{id}", "univ_1", firstTwo);
+        assertEquals(List.of("s1", "s2"), supplied.students.stream().map(student -> student.id).toList());
+        assertEquals(2, suppliedBox.resolveRequestAsync(universityRequest(), "univ_1", firstTwo).join().students.size());
+        suppliedBox.setResolverExecutor(Runnable::run);
+        assertEquals(2, suppliedBox.resolveRequest(universityRequest(), "univ_1", firstTwo).students.size());
+
+        json = new StringWriter();
+        jsonWriter = new JsonWriter(json);
+        suppliedStudentsPickBox().resolveTo(universityRequest(), "univ_1", firstTwo, jsonWriter);
+        jsonWriter.flush();
+        assertEquals(2, mapper.readTree(json.toString()).get("students").size());
+        assertThrows(PickerException.class, () -> suppliedStudentsPickBox().resolveRequest(universityRequest(), "univ_1", cursorArguments));
+    }
+
+
+
+    @Test
+    void listFieldsAreFilteredUnlessTheResolverDoesIt() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+
+        Filter filter = Filter.eq("name", "James Francis");
+        assertTrue(filter.test(new Student("std_2", "James Francis", List.of(), Map.of())));
+        assertTrue(Filter.range("grade", 2, 3.5).test(Map.of("grade", 3L)));
+        assertFalse(Filter.range("grade", 2, null).test(Map.of("grade", 1.5)));
+        assertFalse(Filter.in("id", List.of("std_1")).test(new Student()));
+
+        PickBox pickerBox = new PickBox(
+            List.of(new UniversityResolver(), new ClazzResolver(), new ClassDaysResolver(), new StudentResolver(), new ProfessorResolver())
+        );
+        QueryArguments arguments = new QueryArguments();
+        arguments.setFilter("University.students", filter);
+        University result = pickerBox.resolveRequest(universityRequest(), "univ_1", arguments);
+        assertEquals(1, result.students.size());
+        assertEquals("std_2", result.students.get(0).id);
+
+        // the filter is applied before the page
+        arguments.setFilter("University.students", Filter.in("id", List.of("std_1", "std_2")));
+        arguments.setPage("University.students", Page.of(1, 5));
+        result = pickerBox.resolveRequestAsync(universityRequest(), "univ_1", arguments).join();
+        assertEquals(1, result.students.size());
+        assertEquals("std_2", result.students.get(0).id);
+
+        // a resolver that filters gets the filter and its results are kept as is
+        StudentPagingResolver pagingResolver = new StudentPagingResolver();
+        arguments.setPage("University.students", Page.first(3));
+        pickerBox = new PickBox(
+            List.of(new UniversityResolver(), new ClazzResolver(), new ClassDaysResolver(), pagingResolver, new ProfessorResolver())
+        );
+        result = pickerBox.resolveRequest(universityRequest(), "univ_1", arguments);
+        assertEquals(Filter.in("id", List.of("std_1", "std_2")), pagingResolver.lastFilter);
+        assertEquals(3, result.students.size());
+
+        // lists the parent's response provides are filtered too, before the page
+        QueryArguments suppliedArguments = new QueryArguments();
+        suppliedArguments.setFilter("University.students", Filter.eq("id", "s1"));
+        PickBox suppliedBox = suppliedStudentsPickBox();
+        University supplied = suppliedBox.resolveSelection(University.class, "id,students{id}", "univ_1", suppliedArguments);
+        assertEquals(List.of("s1"), supplied.students.stream().map(student -> student.id).toList());
+        suppliedArguments.setFilter("University.students", Filter.in("id", List.of("s2", "s4", "s5")));
+        suppliedArguments.setPage("University.students", Page.of(1, 5));
+        supplied = suppliedBox.resolveRequestAsync(universityRequest(), "univ_1", suppliedArguments).join();
+        assertEquals(List.of("s4", "s5"), supplied.students.stream().map(student -> student.id).toList());
+        StringWriter suppliedJson = new StringWriter();
+        JsonWriter suppliedWriter = new JsonWriter(suppliedJson);
+        suppliedBox.resolveTo(universityRequest(), "univ_1", suppliedArguments, suppliedWriter);
+        suppliedWriter.flush();
+        assertEquals("s4", mapper.readTree(suppliedJson.toString()).get("students").get(0).get("id").asText());
+
+        // a resolver that pages but doesn't filter can't be given a filter, the page is already cut
+        StudentPagingResolver pageOnlyResolver = new StudentPagingResolver() {
+            @Override
+            public boolean appliesFilter() {
+                return false;
+            }
+        };
+        PickBox pageOnlyBox = new PickBox(
+            List.of(new UniversityResolver(), new ClazzResolver(), new ClassDaysResolver(), pageOnlyResolver, new ProfessorResolver())
+        );
+        PickerException pageOnly = assertThrows(
+            PickerException.class, () -> pageOnlyBox.resolveRequest(universityRequest(), "univ_1", arguments)
+        );
+        assertTrue(pageOnly.getMessage().contains("University.students"));
+        QueryArguments pageOnlyArguments = new QueryArguments();
+        pageOnlyArguments.setPage("University.students", Page.first(3));
+        assertEquals(3, pageOnlyBox.resolveRequest(universityRequest(), "univ_1", pageOnlyArguments).students.size());
+
+        // streamed lists are filtered as they're read
+        arguments.setFilter("University.students", Filter.in("id", List.of("std_5", "std_500", "std_999")));
+        arguments.setPage("University.students", Page.of(1, 5));
+        pickerBox = new PickBox(
+            List.of(new UniversityResolver(), new ClazzResolver(), new ClassDaysResolver(), new StudentStreamingResolver(1000, false), new ProfessorResolver())
+        );
+        StringWriter json = new StringWriter();
+        JsonWriter jsonWriter = new JsonWriter(json);
+        pickerBox.resolveTo(universityRequest(), "univ_1", arguments, jsonWriter);
+        jsonWriter.flush();
+        JsonNode students = mapper.readTree(json.toString()).get("students");
+        assertEquals(2, students.size());
+        assertEquals("std_500", students.get(0).get("id").asText());
+    }
+
+
+
+    @Test
+    void resolversGetTheRequestedSelection() {
+        ClazzSelectionResolver clazzResolver = new ClazzSelectionResolver();
+        PickBox pickerBox = new PickBox(
+            List.of(new UniversityResolver(), clazzResolver, new ClassDaysResolver(), new StudentResolver(), new ProfessorResolver())
+        );
+        pickerBox.setResolverCache(ClazzSelectionResolver.class, new ResolverCacheSettings(Duration.ofMinutes(1), 100));
+        pickerBox.setParentKeyExtractor(University.class, parent -> ((University) parent).id);
+
+        University result = pickerBox.resolveRequest(universityRequest(), "univ_1");
+        SelectionSet selection = clazzResolver.selections.get(0);
+        assertEquals(List.of("code", "name", "semester", "year", "classDays"), new ArrayList<>(selection.getFieldNames()));
+        assertTrue(selection.get("classDays").contains("professorId"));
+        assertTrue(selection.get("name").isEmpty());
+        assertNull(selection.get("room"));
+        assertEquals("Fall", result.classes.get(0).semester);
+
+        // a smaller selection isn't given the cached result of a bigger one
+        University request = universityRequest();
+        request.classes = List.of(new Clazz("", "", null, null, null));
+        result = pickerBox.resolveRequest(request, "univ_1");
+        assertEquals("{code,name}", clazzResolver.selections.get(1).toString());
+        assertNull(result.classes.get(0).semester);
+
+        pickerBox.resolveRequest(universityRequest(), "univ_1");
+        assertEquals(2, clazzResolver.selections.size());
+    }
+
+
+
+    @Test
+    void selectionStringsResolveLikeRequestObjects() throws IOException {
+        SelectionSet parsed = SelectionParser.parse(" { id, name ,\n classes { code classDays{ id } } } ");
+        assertEquals("{id,name,classes{code,classDays{id}}}", parsed.toString());
+        assertThrows(PickerException.class, () -> SelectionParser.parse("classes{code"));
+        assertThrows(PickerException.class, () -> SelectionParser.parse("classes{}"));
+        assertThrows(PickerException.class, () -> SelectionParser.parse("id,id"));
+
+        // nesting is limited, so deep selections throw instead of running out of stack
+        String deepest = "a{".repeat(SelectionParser.MAX_DEPTH) + "a" + "}".repeat(SelectionParser.MAX_DEPTH);
+        assertFalse(SelectionParser.parse(deepest).isEmpty());
+        assertThrows(PickerException.class, () -> SelectionParser.parse("{a{" + deepest + "}}"));
+        PickerException tooDeep = assertThrows(PickerException.class, () -> SelectionParser.parse("a{".repeat(100_000)));
+        assertTrue(tooDeep.getMessage().contains("at position " + (2 * SelectionParser.MAX_DEPTH + 1)));
+
+        PickBox pickerBox = new PickBox(
+            List.of(new UniversityResolver(), new ClazzResolver(), new ClassDaysResolver(), new StudentResolver(), new ProfessorResolver())
+        );
+        University request = new University();
+        request.id = "";
+        request.name = "";
+        request.classes = List.of(new Clazz("", null, null, null, List.of(new ClassDays())));
+        request.classes.get(0).classDays.get(0).id = "";
+        request.classes.get(0).classDays.get(0).studentIds = List.of("");
+        request.students = List.of(new Student("", "", null, null));
+
+        String selection = "id,name,classes{code,classDays{id,studentIds}},students{id,name}";
+        assertEquals(
+            PickerUtil.mapify(pickerBox.resolveRequest(request, "univ_1")), 
+            PickerUtil.mapify(pickerBox.resolveSelection(University.class, selection, "univ_1"))
+        );
+        assertEquals(
+            PickerUtil.mapify(pickerBox.resolveRequest(request, "univ_1")), 
+            PickerUtil.mapify(pickerBox.resolveSelectionAsync(University.class, selection, "univ_1", null).join())
+        );
+        assertEquals(2, pickerBox.resolveSelection(University.class, selection, "univ_1").classes.size());
+        assertSame(pickerBox.getQueryPlan(University.class, selection), pickerBox.getQueryPlan(University.class, selection));
+
+        StringWriter json = new StringWriter();
+        JsonWriter jsonWriter = new JsonWriter(json);
+        pickerBox.resolveSelectionTo(University.class, selection, "univ_1", null, jsonWriter);
+        jsonWriter.flush();
+        assertEquals(
+            new ObjectMapper().valueToTree(PickerUtil.mapify(pickerBox.resolveRequest(request, "univ_1"))), 
+            new ObjectMapper().readTree(json.toString())
+        );
+
+        // checked against the class
+        assertThrows(PickerException.class, () -> pickerBox.resolveSelection(University.class, "name,mascot", "univ_1"));
+        assertThrows(PickerException.class, () -> pickerBox.resolveSelection(University.class, "classes", "univ_1"));
+        assertThrows(PickerException.class, () -> pickerBox.resolveSelection(University.class, "name{first}", "univ_1"));
+    }
+
+
+
+    @Test
+    void jsonRequestsAreReadWithoutBindingThem() throws IOException {
+        PickBox pickerBox = new PickBox(
+            List.of(new UniversityResolver(), new ClazzResolver(), new ClassDaysResolver(), new StudentResolver(), new ProfessorResolver())
+        );
+        byte[] json = new ObjectMapper().writeValueAsBytes(universityRequest());
+
+        SelectionSet selection = JsonRequestReader.read(University.class, new ByteArrayInputStream(json));
+        assertEquals(selection, JsonRequestReader.read(University.class, ByteBuffer.wrap(json)));
+        assertEquals(QueryPlanCompiler.fingerprint(universityRequest()), QueryPlanCompiler.fingerprint(University.class, selection));
+        assertEquals(
+            PickerUtil.mapify(pickerBox.resolveRequest(universityRequest(), "univ_1")), 
+            PickerUtil.mapify(pickerBox.resolveJsonRequest(University.class, new ByteArrayInputStream(json), "univ_1"))
+        );
+
+        // dummy values are skipped, whatever they are
+        String request = "{ \"id\": \"a \\\"quoted\\\" \\u00e9 {[\", \"name\": 0.5e3, \"city\": null, \"\\u0073tate\": true, "
+            + "\"students\": [{\"id\": \"\", \"classIdToGrades\": {\"x\": [1, {}]}}, 42] }";
+        assertEquals(
+            "{id,name,state,students{id,classIdToGrades}}", 
+            JsonRequestReader.read(University.class, request.getBytes(StandardCharsets.UTF_8)).toString()
+        );
+
+        assertThrows(PickerException.class, () -> JsonRequestReader.read(University.class, "{\"mascot\": \"\"}".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(PickerException.class, () -> JsonRequestReader.read(University.class, "{\"classes\": []}".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(PickerException.class, () -> JsonRequestReader.read(University.class, "{\"id\": \"\"".getBytes(StandardCharsets.UTF_8)));
+
+        // primitives are selected like they are in a bound request object
+        Resolver<Allowance, Void, Integer> allowanceResolver = new Resolver<>() {
+            @Override
+            public Allowance resolve(Void parent, Integer extraData) {
+                Allowance allowance = new Allowance();
+                allowance.amount = 5;
+                allowance.interest = 0.5;
+                allowance.currency = "USD";
+                return allowance;
+            }
+        };
+        PickBox allowanceBox = new PickBox(List.of(allowanceResolver));
+        ObjectMapper mapper = new ObjectMapper();
+        for (String allowanceJson : List.of("{\"currency\": \"\"}", "{}", "{\"interest\": 1}")) {
+            Allowance bound = mapper.readValue(allowanceJson, Allowance.class);
+            byte[] bytes = allowanceJson.getBytes(StandardCharsets.UTF_8);
+            assertEquals(
+                QueryPlanCompiler.fingerprint(bound), 
+                QueryPlanCompiler.fingerprint(Allowance.class, JsonRequestReader.read(Allowance.class, bytes))
+            );
+            assertEquals(
+                PickerUtil.mapify(allowanceBox.resolveRequest(bound, 1)), 
+                PickerUtil.mapify(allowanceBox.resolveJsonRequest(Allowance.class, new ByteArrayInputStream(bytes), 1))
+            );
+        }
+
+        // an empty nested object selects the object, like it does bound
+        String employeeJson = "{\"name\": \"\", \"manager\": {}}";
+        assertEquals(
+            QueryPlanCompiler.fingerprint(mapper.readValue(employeeJson, Employee.class)), 
+            QueryPlanCompiler.fingerprint(Employee.class, JsonRequestReader.read(Employee.class, employeeJson.getBytes(StandardCharsets.UTF_8)))
+        );
+
+        // nesting is limited, so deep requests throw instead of running out of stack
+        String deepest = "{\"manager\": ".repeat(SelectionParser.MAX_DEPTH) + "{}" + "}".repeat(SelectionParser.MAX_DEPTH);
+        assertFalse(JsonRequestReader.read(Employee.class, deepest.getBytes(StandardCharsets.UTF_8)).isEmpty());
+        assertThrows(
+            PickerException.class, 
+            () -> JsonRequestReader.read(Employee.class, ("{\"manager\": " + deepest + "}").getBytes(StandardCharsets.UTF_8))
+        );
+        assertThrows(
+            PickerException.class, 
+            () -> JsonRequestReader.read(Employee.class, "{\"reports\": [".repeat(100_000).getBytes(StandardCharsets.UTF_8))
+        );
+    }
+
+
+
+    @Test
+    void selectionMasksMakePrimitivesSelectable() throws IOException {
+        Allowance request = new Allowance();
+        request.currency = "";
+        SelectionMask mask = SelectionMask.of(request);
+        assertEquals("pick.box.domain.nestedExample.Allowance{amount,currency,interest}", mask.toString());
+        Allowance sameShape = new Allowance();
+        sameShape.currency = "EUR";
+        assertEquals(mask, SelectionMask.of(sameShape));
+        assertEquals(mask.hashCode(), SelectionMask.of(sameShape).hashCode());
+        assertEquals("pick.box.domain.nestedExample.Allowance{amount,interest}", SelectionMask.of(new Allowance()).toString());
+
+        // selections only select the primitives they name
+        SelectionMask currencyOnly = SelectionMask.of(Allowance.class, SelectionParser.parse("currency"));
+        assertFalse(currencyOnly.isSelected(ProjectionPlan.of(Allowance.class).getField("amount").getIndex()));
+        assertTrue(currencyOnly.isSelected(ProjectionPlan.of(Allowance.class).getField("currency").getIndex()));
+        assertEquals("pick.box.domain.nestedExample.Allowance{currency}", currencyOnly.toString());
+
+        Resolver<Allowance, Void, Integer> allowanceResolver = new Resolver<>() {
+            @Override
+            public Allowance resolve(Void parent, Integer extraData) {
+                Allowance allowance = new Allowance();
+                allowance.amount = 5;
+                allowance.interest = 0.5;
+                allowance.currency = "USD";
+                return allowance;
+            }
+        };
+        PickBox pickerBox = new PickBox(List.of(allowanceResolver));
+
+        Allowance all = pickerBox.resolveRequest(request, 1);
+        assertEquals(5, all.amount);
+        Allowance some = pickerBox.resolveSelection(currencyOnly, 1, null);
+        assertEquals(0, some.amount);
+        assertEquals("USD", some.currency);
+        assertSame(pickerBox.getQueryPlan(request), pickerBox.getQueryPlan(mask));
+
+        StringWriter json = new StringWriter();
+        JsonWriter jsonWriter = new JsonWriter(json);
+        pickerBox.resolveSelectionTo(Allowance.class, "interest,currency", 1, null, jsonWriter);
+        jsonWriter.flush();
+        assertEquals("{\"interest\":0.5,\"currency\":\"USD\"}", json.toString());
+
+        // mapify of the selection's object also has the unselected primitive, at its default
+        Map<String, Object> mapped = PickerUtil.mapify(pickerBox.resolveSelection(Allowance.class, "interest,currency", 1));
+        assertEquals(Map.of("amount", 0, "interest", 0.5, "currency", "USD"), mapped);
+
+        // for request objects resolveTo writes the same json as mapify
+        StringWriter requestJson = new StringWriter();
+        JsonWriter requestWriter = new JsonWriter(requestJson);
+        pickerBox.resolveTo(request, 1, requestWriter);
+        requestWriter.flush();
+        ObjectMapper mapper = new ObjectMapper();
+        assertEquals(
+            mapper.readTree(PickerUtil.jsonMap(PickerUtil.mapify(pickerBox.resolveRequest(request, 1)))), 
+            mapper.readTree(requestJson.toString())
+        );
+    }
+
+
+
+    @Test
+    void persistedQueriesAreResolvedByHash() {
+        PickBox pickerBox = new PickBox(
+            List.of(new UniversityResolver(), new ClazzResolver(), new ClassDaysResolver(), new StudentResolver(), new ProfessorResolver())
+        );
+        Map<String, Object> expected = PickerUtil.mapify(pickerBox.resolveRequest(universityRequest(), "univ_1"));
+
+        // registered at startup
+        String hash = pickerBox.registerQuery(universityRequest());
+        assertEquals(QueryPlan.hashOf(QueryPlanCompiler.fingerprint(universityRequest())), hash);
+        assertEquals(64, hash.length());
+        assertEquals(expected, PickerUtil.mapify(pickerBox.resolvePersistedQuery(hash, "univ_1")));
+
+        // recompiled for a new engine
+        pickerBox.setProjectionEngine(ProjectionEngine.GENERATED);
+        assertEquals(expected, PickerUtil.mapify(pickerBox.resolvePersistedQuery(hash, "univ_1")));
+
+        // registered on first use
+        String selection = "id,name,students{id}";
+        String selectionHash = QueryPlan.hashOf(QueryPlanCompiler.fingerprint(University.class, SelectionParser.parse(selection)));
+        // fields are sorted by name, so clients can write the fingerprint themselves
+        assertEquals(QueryPlan.hashOf("pick.box.domain.doubleNestedExample.University{id,name,students{id}}"), selectionHash);
+        assertEquals(selectionHash, QueryPlan.hashOf(QueryPlanCompiler.fingerprint(University.class, SelectionParser.parse("students{id},name,id"))));
+        PersistedQueryNotFoundException notFound = assertThrows(
+            PersistedQueryNotFoundException.class, 
+            () -> pickerBox.resolvePersistedQuery(selectionHash, "univ_1")
+        );
+        assertEquals(selectionHash, notFound.getHash());
+        assertEquals(selectionHash, pickerBox.registerQuery(University.class, selection));
+        University result = pickerBox.resolvePersistedQuery(selectionHash, "univ_1");
+        assertEquals(2, result.students.size());
+        assertNull(result.classes);
+
+        // bounded
+        pickerBox.setPersistedQueryCacheSize(1);
+        pickerBox.registerQuery(universityRequest());
+        pickerBox.registerQuery(University.class, selection);
+        assertFalse(pickerBox.isQueryRegistered(hash));
+        assertTrue(pickerBox.isQueryRegistered(selectionHash));
+        assertEquals(1, pickerBox.getPersistedQueryStats().getEvictions());
+    }
+
+
+    @Test
+    void resolverRegistryIsValidatedAndWarmedUp() {
+        PickBox pickerBox = new PickBox(
+            List.of(new UniversityResolver(), new ClazzResolver(), new ClassDaysResolver(), new StudentResolver(), new ProfessorResolver())
+        );
+        pickerBox.validate(University.class);
+
+        // type arguments are read once
+        StudentResolver studentResolver = new StudentResolver();
+        assertSame(studentResolver.getParentType(), studentResolver.getParentType());
+        assertEquals(TypeKey.of(University.class), new UniversityResolver().getReturnType());
+        assertEquals(TypeKey.listOf(TypeKey.of(Student.class)), new StudentStreamingResolver(10, false).getReturnType());
+
+        // everything is built before the first request
+        pickerBox.warmUp(universityRequest());
+        assertEquals(1, pickerBox.getQueryPlanStats().getMisses());
+        pickerBox.resolveRequest(universityRequest(), "univ_1");
+        assertEquals(1, pickerBox.getQueryPlanStats().getMisses());
+        assertEquals(1, pickerBox.getQueryPlanStats().getHits());
+
+        // a class days resolver expecting the wrong parent, and two student resolvers
+        Resolver<List<ClassDays>, University, String> wrongParent = new Resolver<>() {
+            @Override
+            public List<ClassDays> resolve(University parent, String extraData) {
+                return List.of();
+            }
+        };
+        PickBox invalid = new PickBox(
+            List.of(new UniversityResolver(), new ClazzResolver(), wrongParent, new StudentResolver(), new StudentPagingResolver())
+        );
+        PickerException problems = assertThrows(PickerException.class, () -> invalid.validate(University.class, Professor.class));
+        assertTrue(problems.getMessage().contains("fills Clazz.classDays but its parent type is " + University.class.getName()));
+        assertTrue(problems.getMessage().contains("both return " + TypeKey.listOf(TypeKey.of(Student.class))));
+        assertTrue(problems.getMessage().contains("No resolver returns request type " + Professor.class.getName()));
+
+        // resolvers have to give their type arguments
+        @SuppressWarnings("rawtypes")
+        Resolver raw = new Resolver() {
+            @Override
+            public Object resolve(Object parent, Object extraData) {
+                return null;
+            }
+        };
+        assertThrows(PickerException.class, () -> new PickBox(List.of(raw)));
+    }
+
+
+    @Test
+    void freshResolverObjectsAreProjectedInPlace() {
+        List<University> returned = new ArrayList<>();
+        Resolver<University, Void, String> freshResolver = new Resolver<>() {
+            @Override
+            public University resolve(Void parent, String extraData) {
+                University university = new University();
+                university.id = extraData;
+                university.name = "Teaching Focused University";
+                university.city = "Spanish Fork";
+                returned.add(university);
+                return university;
+            }
+
+            @Override
+            public boolean returnsFreshObjects() {
+                return true;
+            }
+        };
+        String selection = "id,name,students{id,name}";
+        University copied = new PickBox(List.of(new UniversityResolver(), new StudentResolver()))
+            .resolveSelection(University.class, selection, "univ_1");
+
+        PickBox pickerBox = new PickBox(List.of(freshResolver, new StudentResolver()));
+        University result = pickerBox.resolveSelection(University.class, selection, "univ_1");
+        assertSame(returned.get(0), result);
+        assertNull(result.city);
+        assertEquals(PickerUtil.mapify(copied), PickerUtil.mapify(result));
+
+        // memoized results can be shared, so they're copied
+        pickerBox.setMemoizeResolvers(true);
+        University memoized = pickerBox.resolveSelection(University.class, selection, "univ_1");
+        assertNotSame(returned.get(1), memoized);
+
+        // or for every resolver
+        PickBox inPlace = new PickBox(List.of(new UniversityResolver(), new StudentResolver()));
+        inPlace.setProjectInPlace(true);
+        inPlace.setProjectionEngine(ProjectionEngine.GENERATED);
+        assertEquals(PickerUtil.mapify(copied), PickerUtil.mapify(inPlace.resolveSelection(University.class, selection, "univ_1")));
+    }
+
+
+    @Test
+    void defaultObjectsAreCycleSafeAndCached() throws IOException {
+        Employee employee = PickBox.getDefaultObject(Employee.class);
+        assertEquals("", employee.name);
+        assertNotNull(employee.startDate);
+        // the cycle stops at an empty employee
+        assertNull(employee.manager.name);
+        assertNull(employee.manager.manager);
+        assertNull(employee.reports.get(0).reports);
+        assertNotSame(employee, PickBox.getDefaultObject(Employee.class));
+
+        Employee cached = PickBox.getCachedDefaultObject(Employee.class);
+        assertSame(cached, PickBox.getCachedDefaultObject(Employee.class));
+
+        ByteBuffer json = PickBox.getDefaultObjectJson(Employee.class);
+        assertTrue(json.isReadOnly());
+        byte[] bytes = new byte[json.remaining()];
+        json.get(bytes);
+        assertEquals(
+            new ObjectMapper().readTree(PickerUtil.jsonMap(PickerUtil.mapify(cached))), 
+            new ObjectMapper().readTree(bytes)
+        );
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PickBox.writeDefaultObjectJson(Employee.class, out);
+        assertEquals(new String(bytes, StandardCharsets.UTF_8), out.toString(StandardCharsets.UTF_8));
+    }
+
+
+
     public static void main(String[] args) {
         PickerBoxTest pickerBoxTest = new PickerBoxTest();
         pickerBoxTest.mapDoubleNestedObject();
@@ -0,0 +1,14 @@
+package pick.box.domain.cycleExample;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public class Employee {
+
+    public String name;
+    public LocalDate startDate;
+
+    public Employee manager;
+    public List<Employee> reports;
+
+}
@@ -0,0 +1,26 @@
+package pick.box.domain.doubleNestedExample.resolvers;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import pick.box.Resolver;
+import pick.box.annotation.CacheResults;
+import pick.box.domain.doubleNestedExample.Professor;
+import pick.box.domain.doubleNestedExample.University;
+
+@CacheResults(ttl = 10, timeUnit = TimeUnit.MINUTES, maxEntries = 100)
+public class CachedProfessorResolver extends Resolver<List<Professor>, University, String> {
+
+
+    private ProfessorResolver professorResolver = new ProfessorResolver();
+
+    public int calls = 0;
+
+
+    @Override
+    public List<Professor> resolve(University parent, String extraData) {
+        calls++;
+        return professorResolver.resolve(parent, extraData);
+    }
+    
+}
@@ -0,0 +1,30 @@
+package pick.box.domain.doubleNestedExample.resolvers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import pick.box.BatchResolver;
+import pick.box.domain.doubleNestedExample.ClassDays;
+import pick.box.domain.doubleNestedExample.Clazz;
+
+public class ClassDaysBatchResolver extends BatchResolver<List<ClassDays>, Clazz, String> {
+
+
+    private ClassDaysResolver classDaysResolver = new ClassDaysResolver();
+
+    public int calls = 0;
+
+
+    @Override
+    public List<List<ClassDays>> resolveBatch(List<Clazz> parents, String extraData) {
+        calls++;
+
+        // normally this would be one query for all the class codes
+        List<List<ClassDays>> classDays = new ArrayList<>();
+        for (Clazz parent : parents) {
+            classDays.add(classDaysResolver.resolve(parent, extraData));
+        }
+        return classDays;
+    }
+    
+}
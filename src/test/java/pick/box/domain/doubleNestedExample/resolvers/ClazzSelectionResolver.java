@@ -0,0 +1,43 @@
+package pick.box.domain.doubleNestedExample.resolvers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import pick.box.ResolveContext;
+import pick.box.Resolver;
+import pick.box.domain.doubleNestedExample.Clazz;
+import pick.box.domain.doubleNestedExample.University;
+import pick.box.query.SelectionSet;
+
+public class ClazzSelectionResolver extends Resolver<List<Clazz>, University, String> {
+
+
+    public List<SelectionSet> selections = new ArrayList<>();
+
+
+    @Override
+    public List<Clazz> resolve(University parent, String extraData) {
+        return resolve(parent, extraData, new ResolveContext("University.classes", null));
+    }
+
+    @Override
+    public List<Clazz> resolve(University parent, String extraData, ResolveContext context) {
+        SelectionSet selection = context.getSelection();
+        selections.add(selection);
+
+        // normally the selected fields would be the columns of a query
+        Clazz cs142 = new Clazz();
+        cs142.code = "CS_142";
+        if (selection.contains("name"))
+            cs142.name = "CS 142";
+        if (selection.contains("semester"))
+            cs142.semester = "Fall";
+        return List.of(cs142);
+    }
+
+    @Override
+    public boolean usesSelection() {
+        return true;
+    }
+    
+}
@@ -0,0 +1,22 @@
+package pick.box.domain.doubleNestedExample.resolvers;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import pick.box.AsyncResolver;
+import pick.box.domain.doubleNestedExample.Professor;
+import pick.box.domain.doubleNestedExample.University;
+
+public class ProfessorAsyncResolver extends AsyncResolver<List<Professor>, University, String> {
+
+
+    private ProfessorResolver professorResolver = new ProfessorResolver();
+
+
+    @Override
+    public CompletableFuture<List<Professor>> resolveAsync(University parent, String extraData) {
+        // normally this would be a non blocking client completing on its own thread
+        return CompletableFuture.supplyAsync(() -> professorResolver.resolve(parent, extraData));
+    }
+    
+}
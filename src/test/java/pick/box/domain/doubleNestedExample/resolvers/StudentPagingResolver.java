@@ -0,0 +1,50 @@
+package pick.box.domain.doubleNestedExample.resolvers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import pick.box.ResolveContext;
+import pick.box.Resolver;
+import pick.box.domain.doubleNestedExample.Student;
+import pick.box.domain.doubleNestedExample.University;
+import pick.box.query.Filter;
+import pick.box.query.Page;
+
+public class StudentPagingResolver extends Resolver<List<Student>, University, String> {
+
+
+    public Page lastPage;
+    public Filter lastFilter;
+
+
+    @Override
+    public List<Student> resolve(University parent, String extraData) {
+        return resolve(parent, extraData, new ResolveContext("University.students", null));
+    }
+
+    @Override
+    public List<Student> resolve(University parent, String extraData, ResolveContext context) {
+        lastPage = context.getPage();
+        lastFilter = context.getFilter();
+
+        // normally the page would go in the query, this one returns one student too many
+        int offset = (lastPage == null)? 0 : lastPage.getOffset();
+        int limit = (lastPage == null || lastPage.getLimit() == Page.NO_LIMIT)? 10 : lastPage.getLimit();
+        List<Student> students = new ArrayList<>();
+        for (int i = offset; i <= offset + limit; i++)
+            students.add(new Student("std_" + i, "Student " + i, List.of("class_142MW"), Map.of("class_142MW", "A")));
+        return students;
+    }
+
+    @Override
+    public boolean appliesPaging() {
+        return true;
+    }
+
+    @Override
+    public boolean appliesFilter() {
+        return true;
+    }
+    
+}
@@ -0,0 +1,59 @@
+package pick.box.domain.doubleNestedExample.resolvers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import pick.box.StreamingResolver;
+import pick.box.domain.doubleNestedExample.Student;
+import pick.box.domain.doubleNestedExample.University;
+
+public class StudentStreamingResolver extends StreamingResolver<Student, University, String> {
+
+
+    private final int count;
+    private final boolean publish;
+
+    public int opened = 0;
+    public int closed = 0;
+
+
+    /**
+     * @param count how many students to make up
+     * @param publish true to stream them from a Flow.Publisher
+     */
+    public StudentStreamingResolver(int count, boolean publish) {
+        this.count = count;
+        this.publish = publish;
+    }
+
+
+    @Override
+    public Stream<Student> stream(University parent, String extraData) {
+        opened++;
+
+        Stream<Student> students;
+        if (publish) {
+            // normally this would be a reactive database driver
+            SubmissionPublisher<Student> publisher = new SubmissionPublisher<>();
+            students = fromPublisher(publisher, 16);
+            new Thread(() -> {
+                for (int i = 0; i < count; i++)
+                    publisher.submit(student(i));
+                publisher.close();
+            }).start();
+        }
+        else {
+            students = IntStream.range(0, count).mapToObj(this::student);
+        }
+
+        return students.onClose(() -> closed++);
+    }
+
+    private Student student(int i) {
+        return new Student("std_" + i, "Student " + i, List.of("class_142MW"), Map.of("class_142MW", "A"));
+    }
+    
+}
@@ -0,0 +1,12 @@
+package pick.box.domain.nestedExample;
+
+import pick.box.annotation.Pickable;
+
+@Pickable
+public class Allowance {
+
+    public int amount;
+    public double interest;
+    public String currency;
+
+}
@@ -1,5 +1,8 @@
 package pick.box.domain.nestedExample;
 
+import pick.box.annotation.Pickable;
+
+@Pickable
 public class Child {
     
 
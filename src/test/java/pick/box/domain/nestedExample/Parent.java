@@ -2,6 +2,9 @@ package pick.box.domain.nestedExample;
 
 import java.util.List;
 
+import pick.box.annotation.Pickable;
+
+@Pickable
 public class Parent {
     
 
@@ -5,5 +5,6 @@ import java.time.ZonedDateTime;
 public class RandomStuff {
     
     public ZonedDateTime date;
+    public float ratio;
 
 }